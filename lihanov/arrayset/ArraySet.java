@@ -4,8 +4,18 @@ import java.util.*;
 
 public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
 
+    static final int PARALLEL_SORT_THRESHOLD = 1 << 16;
+    private static final int MIN_PARALLEL_CHUNK = 1 << 12;
+
+    // Views share the sorted elements of the root set and its index, and keep a range of it and a direction
     private final List<T> elements;
     private final Comparator<? super T> comparator;
+    private final SearchIndex<T> index;
+    private final int from;
+    private final int to;
+    private final boolean descending;
+    private final Comparator<? super T> viewComparator;
+    private ArraySet<T> descendingView;
 
     public ArraySet() {
         this(Collections.emptyList(), null);
@@ -16,39 +26,103 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
     }
 
     public ArraySet(Collection<? extends T> collection, Comparator<? super T> comparator) {
-        Set<T> treeSet = new TreeSet<>(comparator);
-        treeSet.addAll(collection);
-        this.elements = new ArrayList<>(treeSet);
-        this.comparator = comparator;
+        this(sortedUnique(collection, comparator), comparator, null);
     }
 
     public ArraySet(Comparator<? super T> comparator) {
         this(Collections.emptyList(), comparator);
     }
 
-    private ArraySet(List<T> elements, Comparator<? super T> comparator) {
+    ArraySet(List<T> elements, Comparator<? super T> comparator, SearchIndex<T> index) {
+        this(elements, comparator, index, 0, elements.size(), false, comparator);
+    }
+
+    private ArraySet(
+            List<T> elements,
+            Comparator<? super T> comparator,
+            SearchIndex<T> index,
+            int from,
+            int to,
+            boolean descending,
+            Comparator<? super T> viewComparator
+    ) {
         this.elements = elements;
         this.comparator = comparator;
+        this.index = index;
+        this.from = from;
+        this.to = to;
+        this.descending = descending;
+        this.viewComparator = viewComparator;
+    }
+
+    // Same set with a cache-friendly search index for contains, lower, floor, ceiling and higher.
+    // It costs one more array of references, so it pays off only for sets larger than the cache
+    // which are searched many times. The index covers all elements of the root set and is shared by its views.
+    // Sets which already search through an index are returned as is
+    public ArraySet<T> withSearchIndex() {
+        if (index != null) {
+            return this;
+        }
+        return new ArraySet<>(
+                elements, comparator, new EytzingerIndex<>(elements, order(comparator)),
+                from, to, descending, viewComparator
+        );
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> Comparator<? super T> order(Comparator<? super T> comparator) {
+        return comparator != null ? comparator : (Comparator<? super T>) Comparator.naturalOrder();
+    }
+
+    // Presorted input costs one pass, anything else is sorted as an array instead of going through a TreeSet
+    @SuppressWarnings("unchecked")
+    static <T> List<T> sortedUnique(Collection<? extends T> collection, Comparator<? super T> comparator) {
+        final T[] array = (T[]) collection.toArray();
+        final Comparator<? super T> order = order(comparator);
+        if (!isSorted(array, order)) {
+            if (array.length >= PARALLEL_SORT_THRESHOLD) {
+                Arrays.parallelSort(array, order);
+            } else {
+                Arrays.sort(array, order);
+            }
+        }
+        int size = 0;
+        for (T element : array) {
+            // Sorting is stable, so the first of equal elements is kept, as TreeSet does
+            if (size == 0 || order.compare(array[size - 1], element) != 0) {
+                array[size++] = element;
+            }
+        }
+        return Arrays.asList(size == array.length ? array : Arrays.copyOf(array, size));
+    }
+
+    private static <T> boolean isSorted(T[] array, Comparator<? super T> order) {
+        for (int i = 1; i < array.length; i++) {
+            if (order.compare(array[i - 1], array[i]) > 0) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
     public T lower(T t) {
-        return getValue(t, true, true);
+        return valueAt(position(descending ? higherAbsolute(t) : lowerAbsolute(t)));
     }
 
     @Override
     public T floor(T t) {
-        return getValue(t, true, false);
+        return valueAt(position(descending ? ceilingAbsolute(t) : floorAbsolute(t)));
     }
 
     @Override
     public T ceiling(T t) {
-        return getValue(t, false, false);
+        return valueAt(position(descending ? floorAbsolute(t) : ceilingAbsolute(t)));
     }
 
     @Override
     public T higher(T t) {
-        return getValue(t, false, true);
+        return valueAt(position(descending ? lowerAbsolute(t) : higherAbsolute(t)));
     }
 
     @Override
@@ -63,60 +137,94 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
 
     @Override
     public Iterator<T> iterator() {
-        return Collections.unmodifiableCollection(elements).iterator();
+        return iterator(false);
     }
 
+    // Created once per set, so repeated calls and nested views don't allocate
     @Override
-    public NavigableSet<T> descendingSet() {
-        return new ArraySet<>(new FastReversibleList<>(elements), Collections.reverseOrder(comparator));
+    public ArraySet<T> descendingSet() {
+        if (descendingView == null) {
+            final ArraySet<T> view = new ArraySet<>(
+                    elements, comparator, index, from, to, !descending,
+                    descending ? comparator : Collections.reverseOrder(comparator)
+            );
+            view.descendingView = this;
+            descendingView = view;
+        }
+        return descendingView;
     }
 
     @Override
     public Iterator<T> descendingIterator() {
-        return descendingSet().iterator();
+        return iterator(true);
+    }
+
+    private Iterator<T> iterator(boolean reversed) {
+        return new Iterator<>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < size();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final int position = index++;
+                return get(reversed ? size() - 1 - position : position);
+            }
+        };
+    }
+
+    private ArraySet<T> view(int lowAbsolute, int highAbsolute) {
+        return new ArraySet<>(
+                elements, comparator, index,
+                lowAbsolute, Math.max(lowAbsolute, highAbsolute + 1),
+                descending, viewComparator
+        );
     }
 
     @Override
     public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
-        int fromIndex = indexOf(fromElement, false, !fromInclusive);
-        int toIndex = indexOf(toElement, true, !toInclusive);
-        if (compare(fromElement, toElement) == 0 && !(fromInclusive && toInclusive)) {
-            return new ArraySet<>(comparator);
+        if (compare(fromElement, toElement) > 0) {
+            throw new IllegalArgumentException("Left border cannot be greater than right border");
         }
-        return new ArraySet<>(elements.subList(fromIndex, toIndex + 1), comparator);
+        return descending
+                ? view(toInclusive ? ceilingAbsolute(toElement) : higherAbsolute(toElement),
+                        fromInclusive ? floorAbsolute(fromElement) : lowerAbsolute(fromElement))
+                : view(fromInclusive ? ceilingAbsolute(fromElement) : higherAbsolute(fromElement),
+                        toInclusive ? floorAbsolute(toElement) : lowerAbsolute(toElement));
     }
 
     @Override
     public NavigableSet<T> headSet(T toElement, boolean inclusive) {
-        if (isEmpty()) {
-            return this;
-        }
-        return subSet(first(), true, toElement, inclusive);
+        return descending
+                ? view(inclusive ? ceilingAbsolute(toElement) : higherAbsolute(toElement), to - 1)
+                : view(from, inclusive ? floorAbsolute(toElement) : lowerAbsolute(toElement));
     }
 
     @Override
     public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
-        if (isEmpty()) {
-            return this;
-        }
-        return subSet(fromElement, inclusive, last(), true);
+        return descending
+                ? view(from, inclusive ? floorAbsolute(fromElement) : lowerAbsolute(fromElement))
+                : view(inclusive ? ceilingAbsolute(fromElement) : higherAbsolute(fromElement), to - 1);
     }
 
     @Override
     public int size() {
-        return elements.size();
+        return to - from;
     }
 
     @Override
     public Comparator<? super T> comparator() {
-        return comparator;
+        return viewComparator;
     }
 
     @Override
     public SortedSet<T> subSet(T fromElement, T toElement) {
-        if (compare(fromElement, toElement) > 0) {
-            throw new IllegalArgumentException("Left border cannot be greater than right border");
-        }
         return subSet(fromElement, true, toElement, false);
     }
 
@@ -133,19 +241,145 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
     @Override
     public T first() {
         assertIsNotEmpty();
-        return elements.get(0);
+        return get(0);
     }
 
     @Override
     public T last() {
         assertIsNotEmpty();
-        return elements.get(size() - 1);
+        return get(size() - 1);
     }
 
     @SuppressWarnings("unchecked")
     @Override
     public boolean contains(Object object) {
-        return Collections.binarySearch(elements, (T) object, comparator) >= 0;
+        final int index = search((T) object);
+        return index >= from && index < to;
+    }
+
+    // Number of elements less than t
+    public int rank(T t) {
+        return descending ? to - 1 - floorAbsolute(t) : ceilingAbsolute(t) - from;
+    }
+
+    public T select(int rank) {
+        Objects.checkIndex(rank, size());
+        return get(rank);
+    }
+
+    // Batch queries below take keys sorted in the order of the set. Each key is searched by galloping
+    // from the position of the previous one, so a batch of k keys costs O(k log(n / k)) comparisons
+    // instead of O(k log n), and neighbouring keys touch the same part of the set
+
+    public int[] rankAll(List<? extends T> sortedKeys) {
+        final int[] ranks = new int[sortedKeys.size()];
+        rankAll(sortedKeys, ranks, 0, ranks.length);
+        return ranks;
+    }
+
+    // Keys are split into a chunk per thread, each chunk gallops from its own first key
+    public int[] rankAll(int threads, List<? extends T> sortedKeys) throws InterruptedException {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Count of threads should be greater than zero");
+        }
+        final int[] ranks = new int[sortedKeys.size()];
+        final int chunks = Math.max(1, Math.min(threads, ranks.length / MIN_PARALLEL_CHUNK));
+        final List<Thread> workers = new ArrayList<>();
+        final List<RuntimeException> errors = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 1; i < chunks; i++) {
+            final int from = (int) ((long) ranks.length * i / chunks);
+            final int to = (int) ((long) ranks.length * (i + 1) / chunks);
+            final Thread worker = new Thread(() -> {
+                try {
+                    rankAll(sortedKeys, ranks, from, to);
+                } catch (final RuntimeException e) {
+                    errors.add(e);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        try {
+            rankAll(sortedKeys, ranks, 0, ranks.length / chunks);
+            for (final Thread worker : workers) {
+                worker.join();
+            }
+        } catch (final InterruptedException e) {
+            workers.forEach(Thread::interrupt);
+            throw e;
+        }
+        if (!errors.isEmpty()) {
+            throw errors.get(0);
+        }
+        return ranks;
+    }
+
+    public BitSet containsEach(List<? extends T> sortedKeys) {
+        return containsEach(sortedKeys, rankAll(sortedKeys));
+    }
+
+    public BitSet containsEach(int threads, List<? extends T> sortedKeys) throws InterruptedException {
+        return containsEach(sortedKeys, rankAll(threads, sortedKeys));
+    }
+
+    public List<T> ceilingAll(List<? extends T> sortedKeys) {
+        return ceilingAll(rankAll(sortedKeys));
+    }
+
+    public List<T> ceilingAll(int threads, List<? extends T> sortedKeys) throws InterruptedException {
+        return ceilingAll(rankAll(threads, sortedKeys));
+    }
+
+    private void rankAll(List<? extends T> sortedKeys, int[] ranks, int from, int to) {
+        int position = 0;
+        for (int i = from; i < to; i++) {
+            final T key = sortedKeys.get(i);
+            if (i > 0 && compare(sortedKeys.get(i - 1), key) > 0) {
+                throw new IllegalArgumentException("Keys should be sorted in the order of the set");
+            }
+            position = gallop(key, position);
+            ranks[i] = position;
+        }
+    }
+
+    // First index from the given one with an element not less than key
+    private int gallop(T key, int from) {
+        int low = from;
+        int bound = from;
+        int step = 1;
+        while (bound < size() && compare(get(bound), key) < 0) {
+            low = bound + 1;
+            bound = (int) Math.min((long) low + step, size());
+            step <<= 1;
+        }
+        int high = bound;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (compare(get(mid), key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private BitSet containsEach(List<? extends T> sortedKeys, int[] ranks) {
+        final BitSet found = new BitSet(ranks.length);
+        for (int i = 0; i < ranks.length; i++) {
+            if (ranks[i] < size() && compare(get(ranks[i]), sortedKeys.get(i)) == 0) {
+                found.set(i);
+            }
+        }
+        return found;
+    }
+
+    private List<T> ceilingAll(int[] ranks) {
+        final List<T> ceilings = new ArrayList<>(ranks.length);
+        for (final int rank : ranks) {
+            ceilings.add(rank < size() ? get(rank) : null);
+        }
+        return ceilings;
     }
 
     private void assertIsNotEmpty() {
@@ -154,8 +388,12 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
         }
     }
 
-    @SuppressWarnings("unchecked")
     private int compare(T o1, T o2) {
+        return descending ? compareAscending(o2, o1) : compareAscending(o1, o2);
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compareAscending(T o1, T o2) {
         if (comparator != null) {
             return comparator.compare(o1, o2);
         } else {
@@ -163,26 +401,71 @@ public class ArraySet<T> extends AbstractSet<T> implements NavigableSet<T> {
         }
     }
 
-    private int indexOf(T element, boolean greatest, boolean strict) {
-        int index = Collections.binarySearch(elements, element, comparator);
-        if (index < 0) {
-            final int foundIndex = -index - 1;
-            return greatest ? (foundIndex - 1) : foundIndex;
-        } else {
-            if (strict) {
-                return greatest ? (index - 1) : (index + 1);
+    // Element by index in the order of the view
+    private T get(int index) {
+        return elements.get(descending ? to - 1 - index : from + index);
+    }
+
+    // Same contract as Collections.binarySearch over absolute indices of the root elements. The index searches
+    // all of them, so callers clamp the result to the range of the view
+    private int search(T element) {
+        if (index != null) {
+            return index.search(element);
+        }
+        int low = from;
+        int high = to - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int cmp = compareAscending(elements.get(mid), element);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
             } else {
-                return index;
+                return mid;
             }
         }
+        return -low - 1;
     }
 
-    private T getValue(T t, boolean greatest, boolean strict) {
-        int index = indexOf(t, greatest, strict);
-        if (index < 0 || index >= size()) {
-            return null;
-        } else {
-            return elements.get(index);
+    // Absolute lookups are clamped to the range of the view: lower and floor to [from - 1, to - 1],
+    // ceiling and higher to [from, to]
+    private int lowerAbsolute(T element) {
+        final int index = search(element);
+        return fitBelow((index >= 0 ? index : -index - 1) - 1);
+    }
+
+    private int floorAbsolute(T element) {
+        final int index = search(element);
+        return fitBelow(index >= 0 ? index : -index - 2);
+    }
+
+    private int ceilingAbsolute(T element) {
+        final int index = search(element);
+        return fitAbove(index >= 0 ? index : -index - 1);
+    }
+
+    private int higherAbsolute(T element) {
+        final int index = search(element);
+        return fitAbove(index >= 0 ? index + 1 : -index - 1);
+    }
+
+    private int fitBelow(int absolute) {
+        return Math.max(from - 1, Math.min(absolute, to - 1));
+    }
+
+    private int fitAbove(int absolute) {
+        return Math.max(from, Math.min(absolute, to));
+    }
+
+    private int position(int absolute) {
+        if (absolute < from || absolute >= to) {
+            return -1;
         }
+        return descending ? to - 1 - absolute : absolute - from;
+    }
+
+    private T valueAt(int index) {
+        return index < 0 ? null : get(index);
     }
 }
@@ -0,0 +1,82 @@
+package info.kgeorgiy.ja.lihanov.arrayset;
+
+import info.kgeorgiy.ja.lihanov.benchmark.Benchmark;
+
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class ArraySetBenchmark {
+
+    private static final int[] DEFAULT_SIZES = {10_000, 100_000, 1_000_000, 10_000_000};
+    private static final int QUERIES = 1_000_000;
+    private static final Map<String, BiFunction<NavigableSet<Integer>, Integer, Object>> OPERATIONS = new LinkedHashMap<>();
+
+    // Operations return null on a miss, so the count of found keys means the same for all of them
+    static {
+        OPERATIONS.put("contains", (set, key) -> set.contains(key) ? key : null);
+        OPERATIONS.put("floor", NavigableSet::floor);
+        OPERATIONS.put("ceiling", NavigableSet::ceiling);
+        OPERATIONS.put("higher", NavigableSet::higher);
+    }
+
+    public static void main(final String[] args) {
+        if (args == null || args.length > 1) {
+            System.err.println("Usage: ArraySetBenchmark [size,size,...]");
+            return;
+        }
+        // 10^8 elements need several gigabytes of heap, so they are run only on request
+        final int[] sizes = args.length > 0
+                ? Arrays.stream(args[0].split(",")).mapToInt(Integer::parseInt).toArray()
+                : DEFAULT_SIZES;
+
+        System.out.printf("%-9s %-10s %12s %12s %8s %6s%n", "op", "layout", "size", "ns/query", "speedup", "hits");
+        for (final int size : sizes) {
+            // Even numbers only, so that half of the queries miss
+            final ArraySet<Integer> plain = new ArraySet<>(
+                    IntStream.range(0, size).map(i -> 2 * i).boxed().collect(Collectors.toList())
+            );
+            final ArraySet<Integer> indexed = plain.withSearchIndex();
+            final Random random = new Random(size);
+            final Integer[] queries = random.ints(QUERIES, 0, 2 * size).boxed().toArray(Integer[]::new);
+
+            for (final Map.Entry<String, BiFunction<NavigableSet<Integer>, Integer, Object>> operation : OPERATIONS.entrySet()) {
+                final double binary = measure(plain, queries, operation.getValue());
+                final double eytzinger = measure(indexed, queries, operation.getValue());
+                System.out.printf(Locale.ROOT, "%-9s %-10s %12d %12.1f %8s %6.2f%n",
+                        operation.getKey(), "binary", size, binary, "", hits(plain, queries, operation.getValue()));
+                System.out.printf(Locale.ROOT, "%-9s %-10s %12d %12.1f %8.2f %6.2f%n",
+                        operation.getKey(), "eytzinger", size, eytzinger, binary / eytzinger, hits(indexed, queries, operation.getValue()));
+            }
+        }
+    }
+
+    // Share of the queries that found a key, about a half for contains. Both layouts should agree
+    private static double hits(
+            final NavigableSet<Integer> set,
+            final Integer[] queries,
+            final BiFunction<NavigableSet<Integer>, Integer, Object> operation
+    ) {
+        int found = 0;
+        for (final Integer query : queries) {
+            found += operation.apply(set, query) != null ? 1 : 0;
+        }
+        return (double) found / queries.length;
+    }
+
+    // Nanoseconds per query
+    private static double measure(
+            final NavigableSet<Integer> set,
+            final Integer[] queries,
+            final BiFunction<NavigableSet<Integer>, Integer, Object> operation
+    ) {
+        return Benchmark.median(() -> {
+            int found = 0;
+            for (final Integer query : queries) {
+                found += operation.apply(set, query) != null ? 1 : 0;
+            }
+            return found;
+        }) / queries.length;
+    }
+}
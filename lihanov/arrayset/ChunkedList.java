@@ -0,0 +1,141 @@
+package info.kgeorgiy.ja.lihanov.arrayset;
+
+import java.util.*;
+
+// Sorted elements cut into short arrays. An update copies one chunk and the arrays of chunk references,
+// every other chunk is shared with the previous version
+class ChunkedList<T> extends AbstractList<T> implements RandomAccess, SearchIndex<T> {
+    private static final int CHUNK = 512;
+    private static final int MAX_CHUNK = 2 * CHUNK;
+    private static final int MIN_CHUNK = CHUNK / 4;
+
+    private final Object[][] chunks;
+    // offsets[i] is the index of the first element of chunks[i], the last one is the size
+    private final int[] offsets;
+    private final Comparator<? super T> order;
+
+    private ChunkedList(final Object[][] chunks, final Comparator<? super T> order) {
+        this.chunks = chunks;
+        this.offsets = new int[chunks.length + 1];
+        for (int i = 0; i < chunks.length; i++) {
+            offsets[i + 1] = offsets[i] + chunks[i].length;
+        }
+        this.order = order;
+    }
+
+    static <T> ChunkedList<T> of(final List<T> sorted, final Comparator<? super T> order) {
+        final Object[] elements = sorted.toArray();
+        final Object[][] chunks = new Object[(elements.length + CHUNK - 1) / CHUNK][];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = Arrays.copyOfRange(elements, i * CHUNK, Math.min(elements.length, (i + 1) * CHUNK));
+        }
+        return new ChunkedList<>(chunks, order);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(final int index) {
+        Objects.checkIndex(index, size());
+        final int chunk = chunkOf(index);
+        return (T) chunks[chunk][index - offsets[chunk]];
+    }
+
+    @Override
+    public int size() {
+        return offsets[chunks.length];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public int search(final T key) {
+        final int chunk = chunkFor(key);
+        if (chunk < 0) {
+            return -1;
+        }
+        final int found = Arrays.binarySearch((T[]) chunks[chunk], key, order);
+        return found >= 0 ? offsets[chunk] + found : found - offsets[chunk];
+    }
+
+    // Same list with key inserted, or null if it is already there
+    ChunkedList<T> with(final T key) {
+        if (chunks.length == 0) {
+            return new ChunkedList<>(new Object[][]{{key}}, order);
+        }
+        final int chunk = Math.max(0, chunkFor(key));
+        final Object[] elements = chunks[chunk];
+        @SuppressWarnings("unchecked") final int found = Arrays.binarySearch((T[]) elements, key, order);
+        if (found >= 0) {
+            return null;
+        }
+        final int position = -found - 1;
+        final Object[] inserted = new Object[elements.length + 1];
+        System.arraycopy(elements, 0, inserted, 0, position);
+        inserted[position] = key;
+        System.arraycopy(elements, position, inserted, position + 1, elements.length - position);
+        if (inserted.length <= MAX_CHUNK) {
+            return replace(chunk, 1, inserted);
+        }
+        final int half = inserted.length / 2;
+        return replace(chunk, 1, Arrays.copyOfRange(inserted, 0, half), Arrays.copyOfRange(inserted, half, inserted.length));
+    }
+
+    // Same list without key, or null if it is not there
+    ChunkedList<T> without(final T key) {
+        final int chunk = chunkFor(key);
+        if (chunk < 0) {
+            return null;
+        }
+        final Object[] elements = chunks[chunk];
+        @SuppressWarnings("unchecked") final int position = Arrays.binarySearch((T[]) elements, key, order);
+        if (position < 0) {
+            return null;
+        }
+        final Object[] removed = new Object[elements.length - 1];
+        System.arraycopy(elements, 0, removed, 0, position);
+        System.arraycopy(elements, position + 1, removed, position, removed.length - position);
+        if (removed.length >= MIN_CHUNK || chunks.length == 1) {
+            return removed.length == 0 ? replace(chunk, 1) : replace(chunk, 1, removed);
+        }
+        // A short chunk is merged into a neighbour, so removals don't leave lots of tiny chunks behind
+        final int neighbour = chunk + 1 < chunks.length ? chunk + 1 : chunk - 1;
+        final int first = Math.min(chunk, neighbour);
+        final Object[] left = first == chunk ? removed : chunks[first];
+        final Object[] right = first == chunk ? chunks[neighbour] : removed;
+        final Object[] merged = Arrays.copyOf(left, left.length + right.length);
+        System.arraycopy(right, 0, merged, left.length, right.length);
+        if (merged.length <= MAX_CHUNK) {
+            return replace(first, 2, merged);
+        }
+        final int half = merged.length / 2;
+        return replace(first, 2, Arrays.copyOfRange(merged, 0, half), Arrays.copyOfRange(merged, half, merged.length));
+    }
+
+    private ChunkedList<T> replace(final int from, final int count, final Object[]... replacement) {
+        final Object[][] updated = new Object[chunks.length - count + replacement.length][];
+        System.arraycopy(chunks, 0, updated, 0, from);
+        System.arraycopy(replacement, 0, updated, from, replacement.length);
+        System.arraycopy(chunks, from + count, updated, from + replacement.length, chunks.length - from - count);
+        return new ChunkedList<>(updated, order);
+    }
+
+    private int chunkOf(final int index) {
+        final int found = Arrays.binarySearch(offsets, 0, chunks.length, index);
+        return found >= 0 ? found : -found - 2;
+    }
+
+    // Last chunk whose first element is not greater than key, -1 if there is none
+    @SuppressWarnings("unchecked")
+    private int chunkFor(final T key) {
+        int low = 0;
+        int high = chunks.length - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (order.compare((T) chunks[mid][0], key) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low - 1;
+    }
+}
@@ -0,0 +1,71 @@
+package info.kgeorgiy.ja.lihanov.arrayset;
+
+import java.util.Comparator;
+import java.util.List;
+
+// Every BLOCK-th element in BFS order of the implicit search tree: the hot upper levels share a few cache lines
+// and every probe of a descent goes to a position known in advance. The descent ends in a block of BLOCK
+// neighbouring elements, which is searched as usual, so the last probes stay close to each other
+class EytzingerIndex<T> implements SearchIndex<T> {
+    private static final int BLOCK = 64;
+
+    private final List<T> elements;
+    private final Object[] tree;
+    private final int[] blocks;
+    private final Comparator<? super T> order;
+
+    EytzingerIndex(final List<T> elements, final Comparator<? super T> order) {
+        final int samples = (elements.size() + BLOCK - 1) / BLOCK;
+        this.elements = elements;
+        this.tree = new Object[samples + 1];
+        this.blocks = new int[samples + 1];
+        this.order = order;
+        fill(0, 1);
+    }
+
+    private int fill(int block, final int node) {
+        if (node < tree.length) {
+            block = fill(block, 2 * node);
+            tree[node] = elements.get(block * BLOCK);
+            blocks[node] = block++;
+            block = fill(block, 2 * node + 1);
+        }
+        return block;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public int search(final T key) {
+        int node = 1;
+        while (node < tree.length) {
+            // A branch rather than a conditional move: the speculated descent loads the next level early,
+            // which is the closest Java gets to a prefetch
+            if (order.compare((T) tree[node], key) <= 0) {
+                node = 2 * node + 1;
+            } else {
+                node = 2 * node;
+            }
+        }
+        // Climb back to the last node where the descent went left, that is the first sample greater than key
+        node >>= Integer.numberOfTrailingZeros(~node) + 1;
+        final int block = (node == 0 ? tree.length - 1 : blocks[node]) - 1;
+        if (block < 0) {
+            return -1;
+        }
+        // The first element of the block is its sample, which is known to be not greater than key
+        int low = block * BLOCK + 1;
+        int high = Math.min(low - 1 + BLOCK, elements.size()) - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int cmp = order.compare(elements.get(mid), key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return order.compare(elements.get(low - 1), key) == 0 ? low - 1 : -low - 1;
+    }
+}
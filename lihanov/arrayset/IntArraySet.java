@@ -0,0 +1,262 @@
+package info.kgeorgiy.ja.lihanov.arrayset;
+
+import java.util.*;
+
+public class IntArraySet extends AbstractSet<Integer> implements NavigableSet<Integer> {
+
+    private final int[] elements;
+    private final int from;
+    private final int to;
+    private final boolean descending;
+
+    public IntArraySet() {
+        this(new int[0], 0, 0, false);
+    }
+
+    public IntArraySet(final int[] values) {
+        this.elements = sortedUnique(values);
+        this.from = 0;
+        this.to = elements.length;
+        this.descending = false;
+    }
+
+    private IntArraySet(final int[] elements, final int from, final int to, final boolean descending) {
+        this.elements = elements;
+        this.from = from;
+        this.to = to;
+        this.descending = descending;
+    }
+
+    private static int[] sortedUnique(final int[] values) {
+        final int[] sorted = values.clone();
+        if (!isSorted(sorted)) {
+            if (sorted.length >= ArraySet.PARALLEL_SORT_THRESHOLD) {
+                Arrays.parallelSort(sorted);
+            } else {
+                Arrays.sort(sorted);
+            }
+        }
+        int size = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (size == 0 || sorted[size - 1] != sorted[i]) {
+                sorted[size++] = sorted[i];
+            }
+        }
+        return size == sorted.length ? sorted : Arrays.copyOf(sorted, size);
+    }
+
+    private static boolean isSorted(final int[] values) {
+        for (int i = 1; i < values.length; i++) {
+            if (values[i - 1] > values[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean contains(final int key) {
+        return Arrays.binarySearch(elements, from, to, key) >= 0;
+    }
+
+    public int getInt(final int index) {
+        Objects.checkIndex(index, size());
+        return descending ? elements[to - 1 - index] : elements[from + index];
+    }
+
+    public int firstInt() {
+        assertIsNotEmpty();
+        return getInt(0);
+    }
+
+    public int lastInt() {
+        assertIsNotEmpty();
+        return getInt(size() - 1);
+    }
+
+    // Index-returning lookups do not box, -1 means that there is no such element
+    public int lowerIndex(final int key) {
+        return position(descending ? higherAbsolute(key) : lowerAbsolute(key));
+    }
+
+    public int floorIndex(final int key) {
+        return position(descending ? ceilingAbsolute(key) : floorAbsolute(key));
+    }
+
+    public int ceilingIndex(final int key) {
+        return position(descending ? floorAbsolute(key) : ceilingAbsolute(key));
+    }
+
+    public int higherIndex(final int key) {
+        return position(descending ? lowerAbsolute(key) : higherAbsolute(key));
+    }
+
+    private int lowerAbsolute(final int key) {
+        final int index = Arrays.binarySearch(elements, from, to, key);
+        return (index >= 0 ? index : -index - 1) - 1;
+    }
+
+    private int floorAbsolute(final int key) {
+        final int index = Arrays.binarySearch(elements, from, to, key);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    private int ceilingAbsolute(final int key) {
+        final int index = Arrays.binarySearch(elements, from, to, key);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private int higherAbsolute(final int key) {
+        final int index = Arrays.binarySearch(elements, from, to, key);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    private int position(final int absolute) {
+        if (absolute < from || absolute >= to) {
+            return -1;
+        }
+        return descending ? to - 1 - absolute : absolute - from;
+    }
+
+    private Integer valueAt(final int index) {
+        return index < 0 ? null : getInt(index);
+    }
+
+    @Override
+    public Integer lower(final Integer key) {
+        return valueAt(lowerIndex(key));
+    }
+
+    @Override
+    public Integer floor(final Integer key) {
+        return valueAt(floorIndex(key));
+    }
+
+    @Override
+    public Integer ceiling(final Integer key) {
+        return valueAt(ceilingIndex(key));
+    }
+
+    @Override
+    public Integer higher(final Integer key) {
+        return valueAt(higherIndex(key));
+    }
+
+    @Override
+    public Integer pollFirst() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Integer pollLast() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < size();
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return getInt(index++);
+            }
+        };
+    }
+
+    @Override
+    public IntArraySet descendingSet() {
+        return new IntArraySet(elements, from, to, !descending);
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt descendingIterator() {
+        return descendingSet().iterator();
+    }
+
+    private IntArraySet view(final int lowAbsolute, final int highAbsolute) {
+        if (highAbsolute < lowAbsolute) {
+            return new IntArraySet(elements, lowAbsolute, lowAbsolute, descending);
+        }
+        return new IntArraySet(elements, lowAbsolute, highAbsolute + 1, descending);
+    }
+
+    @Override
+    public IntArraySet subSet(final Integer fromElement, final boolean fromInclusive, final Integer toElement, final boolean toInclusive) {
+        if (descending ? fromElement < toElement : fromElement > toElement) {
+            throw new IllegalArgumentException("Left border cannot be greater than right border");
+        }
+        return descending
+                ? view(toInclusive ? ceilingAbsolute(toElement) : higherAbsolute(toElement),
+                        fromInclusive ? floorAbsolute(fromElement) : lowerAbsolute(fromElement))
+                : view(fromInclusive ? ceilingAbsolute(fromElement) : higherAbsolute(fromElement),
+                        toInclusive ? floorAbsolute(toElement) : lowerAbsolute(toElement));
+    }
+
+    @Override
+    public IntArraySet headSet(final Integer toElement, final boolean inclusive) {
+        return descending
+                ? view(inclusive ? ceilingAbsolute(toElement) : higherAbsolute(toElement), to - 1)
+                : view(from, inclusive ? floorAbsolute(toElement) : lowerAbsolute(toElement));
+    }
+
+    @Override
+    public IntArraySet tailSet(final Integer fromElement, final boolean inclusive) {
+        return descending
+                ? view(from, inclusive ? floorAbsolute(fromElement) : lowerAbsolute(fromElement))
+                : view(inclusive ? ceilingAbsolute(fromElement) : higherAbsolute(fromElement), to - 1);
+    }
+
+    @Override
+    public IntArraySet subSet(final Integer fromElement, final Integer toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public IntArraySet headSet(final Integer toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public IntArraySet tailSet(final Integer fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public Comparator<? super Integer> comparator() {
+        return descending ? Collections.reverseOrder() : null;
+    }
+
+    @Override
+    public Integer first() {
+        return firstInt();
+    }
+
+    @Override
+    public Integer last() {
+        return lastInt();
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    @Override
+    public boolean contains(final Object object) {
+        return object instanceof Integer && contains((int) (Integer) object);
+    }
+
+    private void assertIsNotEmpty() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package info.kgeorgiy.ja.lihanov.arrayset;
+
+import java.util.*;
+
+public class LongArraySet extends AbstractSet<Long> implements NavigableSet<Long> {
+
+    private final long[] elements;
+    private final int from;
+    private final int to;
+    private final boolean descending;
+
+    public LongArraySet() {
+        this(new long[0], 0, 0, false);
+    }
+
+    public LongArraySet(final long[] values) {
+        this.elements = sortedUnique(values);
+        this.from = 0;
+        this.to = elements.length;
+        this.descending = false;
+    }
+
+    private LongArraySet(final long[] elements, final int from, final int to, final boolean descending) {
+        this.elements = elements;
+        this.from = from;
+        this.to = to;
+        this.descending = descending;
+    }
+
+    private static long[] sortedUnique(final long[] values) {
+        final long[] sorted = values.clone();
+        if (!isSorted(sorted)) {
+            if (sorted.length >= ArraySet.PARALLEL_SORT_THRESHOLD) {
+                Arrays.parallelSort(sorted);
+            } else {
+                Arrays.sort(sorted);
+            }
+        }
+        int size = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (size == 0 || sorted[size - 1] != sorted[i]) {
+                sorted[size++] = sorted[i];
+            }
+        }
+        return size == sorted.length ? sorted : Arrays.copyOf(sorted, size);
+    }
+
+    private static boolean isSorted(final long[] values) {
+        for (int i = 1; i < values.length; i++) {
+            if (values[i - 1] > values[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean contains(final long key) {
+        return Arrays.binarySearch(elements, from, to, key) >= 0;
+    }
+
+    public long getLong(final int index) {
+        Objects.checkIndex(index, size());
+        return descending ? elements[to - 1 - index] : elements[from + index];
+    }
+
+    public long firstLong() {
+        assertIsNotEmpty();
+        return getLong(0);
+    }
+
+    public long lastLong() {
+        assertIsNotEmpty();
+        return getLong(size() - 1);
+    }
+
+    // Index-returning lookups do not box, -1 means that there is no such element
+    public int lowerIndex(final long key) {
+        return position(descending ? higherAbsolute(key) : lowerAbsolute(key));
+    }
+
+    public int floorIndex(final long key) {
+        return position(descending ? ceilingAbsolute(key) : floorAbsolute(key));
+    }
+
+    public int ceilingIndex(final long key) {
+        return position(descending ? floorAbsolute(key) : ceilingAbsolute(key));
+    }
+
+    public int higherIndex(final long key) {
+        return position(descending ? lowerAbsolute(key) : higherAbsolute(key));
+    }
+
+    private int lowerAbsolute(final long key) {
+        final int index = Arrays.binarySearch(elements, from, to, key);
+        return (index >= 0 ? index : -index - 1) - 1;
+    }
+
+    private int floorAbsolute(final long key) {
+        final int index = Arrays.binarySearch(elements, from, to, key);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    private int ceilingAbsolute(final long key) {
+        final int index = Arrays.binarySearch(elements, from, to, key);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private int higherAbsolute(final long key) {
+        final int index = Arrays.binarySearch(elements, from, to, key);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    private int position(final int absolute) {
+        if (absolute < from || absolute >= to) {
+            return -1;
+        }
+        return descending ? to - 1 - absolute : absolute - from;
+    }
+
+    private Long valueAt(final int index) {
+        return index < 0 ? null : getLong(index);
+    }
+
+    @Override
+    public Long lower(final Long key) {
+        return valueAt(lowerIndex(key));
+    }
+
+    @Override
+    public Long floor(final Long key) {
+        return valueAt(floorIndex(key));
+    }
+
+    @Override
+    public Long ceiling(final Long key) {
+        return valueAt(ceilingIndex(key));
+    }
+
+    @Override
+    public Long higher(final Long key) {
+        return valueAt(higherIndex(key));
+    }
+
+    @Override
+    public Long pollFirst() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Long pollLast() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public PrimitiveIterator.OfLong iterator() {
+        return new PrimitiveIterator.OfLong() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < size();
+            }
+
+            @Override
+            public long nextLong() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return getLong(index++);
+            }
+        };
+    }
+
+    @Override
+    public LongArraySet descendingSet() {
+        return new LongArraySet(elements, from, to, !descending);
+    }
+
+    @Override
+    public PrimitiveIterator.OfLong descendingIterator() {
+        return descendingSet().iterator();
+    }
+
+    private LongArraySet view(final int lowAbsolute, final int highAbsolute) {
+        if (highAbsolute < lowAbsolute) {
+            return new LongArraySet(elements, lowAbsolute, lowAbsolute, descending);
+        }
+        return new LongArraySet(elements, lowAbsolute, highAbsolute + 1, descending);
+    }
+
+    @Override
+    public LongArraySet subSet(final Long fromElement, final boolean fromInclusive, final Long toElement, final boolean toInclusive) {
+        if (descending ? fromElement < toElement : fromElement > toElement) {
+            throw new IllegalArgumentException("Left border cannot be greater than right border");
+        }
+        return descending
+                ? view(toInclusive ? ceilingAbsolute(toElement) : higherAbsolute(toElement),
+                        fromInclusive ? floorAbsolute(fromElement) : lowerAbsolute(fromElement))
+                : view(fromInclusive ? ceilingAbsolute(fromElement) : higherAbsolute(fromElement),
+                        toInclusive ? floorAbsolute(toElement) : lowerAbsolute(toElement));
+    }
+
+    @Override
+    public LongArraySet headSet(final Long toElement, final boolean inclusive) {
+        return descending
+                ? view(inclusive ? ceilingAbsolute(toElement) : higherAbsolute(toElement), to - 1)
+                : view(from, inclusive ? floorAbsolute(toElement) : lowerAbsolute(toElement));
+    }
+
+    @Override
+    public LongArraySet tailSet(final Long fromElement, final boolean inclusive) {
+        return descending
+                ? view(from, inclusive ? floorAbsolute(fromElement) : lowerAbsolute(fromElement))
+                : view(inclusive ? ceilingAbsolute(fromElement) : higherAbsolute(fromElement), to - 1);
+    }
+
+    @Override
+    public LongArraySet subSet(final Long fromElement, final Long toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public LongArraySet headSet(final Long toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public LongArraySet tailSet(final Long fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public Comparator<? super Long> comparator() {
+        return descending ? Collections.reverseOrder() : null;
+    }
+
+    @Override
+    public Long first() {
+        return firstLong();
+    }
+
+    @Override
+    public Long last() {
+        return lastLong();
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    @Override
+    public boolean contains(final Object object) {
+        return object instanceof Long && contains((long) (Long) object);
+    }
+
+    private void assertIsNotEmpty() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package info.kgeorgiy.ja.lihanov.arrayset;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+// Sorted fixed-width keys stored in a file and opened as a read-only ArraySet over a memory mapping.
+// Opening costs a few mmap calls whatever the size, and the keys stay in the page cache instead of the heap.
+// File layout: magic, version, key kind, key width (ints), count of keys (long), then the keys in order
+public final class MappedArraySet {
+    private static final int MAGIC = 0x41534554;
+    private static final int VERSION = 1;
+    private static final int LONG_KEYS = 0;
+    private static final int BYTE_KEYS = 1;
+    private static final int HEADER = 4 * Integer.BYTES + Long.BYTES;
+    // A single mapping is limited to 2 GB, so bigger files are mapped by segments of whole keys
+    private static final int SEGMENT = 1 << 30;
+
+    private static final Comparator<byte[]> UNSIGNED = Arrays::compareUnsigned;
+
+    private MappedArraySet() {
+    }
+
+    public static void writeLongs(final Path file, final Collection<Long> keys) throws IOException {
+        final List<Long> sorted = ArraySet.sortedUnique(keys, null);
+        write(file, LONG_KEYS, Long.BYTES, sorted.size(), out -> {
+            for (final long key : sorted) {
+                out.writeLong(key);
+            }
+        });
+    }
+
+    // Keys are ordered as unsigned byte strings
+    public static void writeBytes(final Path file, final int width, final Collection<byte[]> keys) throws IOException {
+        if (width <= 0) {
+            throw new IllegalArgumentException("Width of keys should be greater than zero");
+        }
+        for (final byte[] key : keys) {
+            if (key.length != width) {
+                throw new IllegalArgumentException("Expected key of " + width + " bytes, found " + key.length);
+            }
+        }
+        final List<byte[]> sorted = ArraySet.sortedUnique(keys, UNSIGNED);
+        write(file, BYTE_KEYS, width, sorted.size(), out -> {
+            for (final byte[] key : sorted) {
+                out.write(key);
+            }
+        });
+    }
+
+    public static ArraySet<Long> openLongs(final Path file) throws IOException {
+        final Mapping mapping = map(file, LONG_KEYS);
+        return new ArraySet<>(new MappedList<>(mapping) {
+            @Override
+            Long read(final ByteBuffer segment, final int offset) {
+                return segment.getLong(offset);
+            }
+        }, null, null);
+    }
+
+    public static ArraySet<byte[]> openBytes(final Path file) throws IOException {
+        final Mapping mapping = map(file, BYTE_KEYS);
+        return new ArraySet<>(new MappedList<>(mapping) {
+            @Override
+            byte[] read(final ByteBuffer segment, final int offset) {
+                final byte[] key = new byte[mapping.width];
+                segment.duplicate().position(offset).get(key);
+                return key;
+            }
+        }, UNSIGNED, null);
+    }
+
+    private interface Keys {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    // Keys are written to a temporary sibling that replaces the file only when complete, so a failed write
+    // leaves the previous set in place, and sets opened from it keep their mappings of the old file
+    private static void write(final Path file, final int kind, final int width, final int count, final Keys keys) throws IOException {
+        final Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(kind);
+                out.writeInt(width);
+                out.writeLong(count);
+                keys.write(out);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static Mapping map(final Path file, final int kind) throws IOException {
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(HEADER, channel.size()));
+            if (header.limit() < HEADER || header.getInt() != MAGIC) {
+                throw new IOException("Not a mapped array set: " + file);
+            }
+            if (header.getInt() != VERSION || header.getInt() != kind) {
+                throw new IOException("Unsupported version or kind of keys in " + file);
+            }
+            final int width = header.getInt();
+            final long count = header.getLong();
+            if (width <= 0 || count < 0 || count > Integer.MAX_VALUE || channel.size() != HEADER + count * width) {
+                throw new IOException("Corrupted mapped array set: " + file);
+            }
+
+            // The mappings stay valid after the channel is closed
+            final int keysPerSegment = Math.max(1, SEGMENT / width);
+            final ByteBuffer[] segments = new ByteBuffer[(int) ((count + keysPerSegment - 1) / keysPerSegment)];
+            for (int i = 0; i < segments.length; i++) {
+                final long first = (long) i * keysPerSegment;
+                final long keys = Math.min(keysPerSegment, count - first);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER + first * width, keys * width);
+            }
+            return new Mapping(segments, width, keysPerSegment, (int) count);
+        }
+    }
+
+    private static class Mapping {
+        private final ByteBuffer[] segments;
+        private final int width;
+        private final int keysPerSegment;
+        private final int count;
+
+        private Mapping(final ByteBuffer[] segments, final int width, final int keysPerSegment, final int count) {
+            this.segments = segments;
+            this.width = width;
+            this.keysPerSegment = keysPerSegment;
+            this.count = count;
+        }
+    }
+
+    // Absolute reads don't touch the position of a buffer, so the list can be shared between threads
+    private abstract static class MappedList<T> extends AbstractList<T> implements RandomAccess {
+        private final Mapping mapping;
+
+        private MappedList(final Mapping mapping) {
+            this.mapping = mapping;
+        }
+
+        abstract T read(ByteBuffer segment, int offset);
+
+        @Override
+        public T get(final int index) {
+            Objects.checkIndex(index, mapping.count);
+            return read(
+                    mapping.segments[index / mapping.keysPerSegment],
+                    index % mapping.keysPerSegment * mapping.width
+            );
+        }
+
+        @Override
+        public int size() {
+            return mapping.count;
+        }
+    }
+}
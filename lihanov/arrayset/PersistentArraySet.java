@@ -0,0 +1,43 @@
+package info.kgeorgiy.ja.lihanov.arrayset;
+
+import java.util.*;
+
+// ArraySet whose updates return new versions. A version shares all chunks but one with the previous one,
+// so an update costs O(chunk + n / chunk) instead of a full rebuild, and readers of old versions are never stalled
+public class PersistentArraySet<T> extends ArraySet<T> {
+
+    private final ChunkedList<T> chunks;
+
+    public PersistentArraySet() {
+        this(Collections.emptyList(), null);
+    }
+
+    public PersistentArraySet(Collection<? extends T> elements) {
+        this(elements, null);
+    }
+
+    public PersistentArraySet(Comparator<? super T> comparator) {
+        this(Collections.emptyList(), comparator);
+    }
+
+    public PersistentArraySet(Collection<? extends T> collection, Comparator<? super T> comparator) {
+        this(ChunkedList.of(sortedUnique(collection, comparator), order(comparator)), comparator);
+    }
+
+    private PersistentArraySet(ChunkedList<T> chunks, Comparator<? super T> comparator) {
+        super(chunks, comparator, chunks);
+        this.chunks = chunks;
+    }
+
+    public PersistentArraySet<T> with(T element) {
+        return version(chunks.with(element));
+    }
+
+    public PersistentArraySet<T> without(T element) {
+        return version(chunks.without(element));
+    }
+
+    private PersistentArraySet<T> version(ChunkedList<T> updated) {
+        return updated == null ? this : new PersistentArraySet<>(updated, comparator());
+    }
+}
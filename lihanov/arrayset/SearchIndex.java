@@ -0,0 +1,6 @@
+package info.kgeorgiy.ja.lihanov.arrayset;
+
+interface SearchIndex<T> {
+    // Same contract as Collections.binarySearch on the sorted elements of the set
+    int search(T key);
+}
@@ -0,0 +1,39 @@
+package info.kgeorgiy.ja.lihanov.benchmark;
+
+import java.util.Arrays;
+
+// Timing harness shared by the benchmarks. Results of runs are published to a volatile field,
+// so the JIT can't throw the measured work away
+public final class Benchmark {
+    private static final int WARMUP = 3;
+    private static final int MEASUREMENTS = 7;
+
+    private static volatile Object sink;
+
+    public interface Run<E extends Exception> {
+        Object run() throws E;
+    }
+
+    private Benchmark() {
+    }
+
+    // Median of several timed runs after a warmup, in nanoseconds
+    public static <E extends Exception> double median(final Run<E> run) throws E {
+        for (int i = 0; i < WARMUP; i++) {
+            sink = run.run();
+        }
+        final long[] times = new long[MEASUREMENTS];
+        for (int i = 0; i < MEASUREMENTS; i++) {
+            final long start = System.nanoTime();
+            sink = run.run();
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        return times[MEASUREMENTS / 2];
+    }
+
+    // For results of runs that are timed by the caller
+    public static void consume(final Object result) {
+        sink = result;
+    }
+}
@@ -0,0 +1,97 @@
+package info.kgeorgiy.ja.lihanov.concurrent;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class AsyncIterativeParallelism {
+
+    private final AsyncParallelMapper parallelMapper;
+
+    public AsyncIterativeParallelism(final AsyncParallelMapper parallelMapper) {
+        this.parallelMapper = Objects.requireNonNull(parallelMapper);
+    }
+
+    private <T, V> CompletableFuture<List<V>> parallelApply(
+            final int threads,
+            final List<T> values,
+            final Function<Stream<T>, V> threadFunction
+    ) {
+        return parallelMapper.mapAsync(threadFunction, IterativeParallelism.split(threads, values));
+    }
+
+    public <T> CompletableFuture<T> maximum(
+            final int threads,
+            final List<? extends T> values,
+            final Comparator<? super T> comparator
+    ) {
+        return parallelApply(threads, values, stream -> IterativeParallelism.maxOfStream(stream, comparator))
+                .thenApply(maximums -> IterativeParallelism.maxOfStream(maximums.stream(), comparator));
+    }
+
+    public <T> CompletableFuture<T> minimum(
+            final int threads,
+            final List<? extends T> values,
+            final Comparator<? super T> comparator
+    ) {
+        return maximum(threads, values, comparator.reversed());
+    }
+
+    public <T> CompletableFuture<Boolean> all(
+            final int threads,
+            final List<? extends T> values,
+            final Predicate<? super T> predicate
+    ) {
+        final AtomicBoolean failed = new AtomicBoolean();
+        return parallelApply(threads, values, stream -> stream.allMatch(IterativeParallelism.whileNotFailed(predicate, failed)))
+                .thenApply(results -> results.stream().allMatch(Boolean::booleanValue));
+    }
+
+    public <T> CompletableFuture<Boolean> any(
+            final int threads,
+            final List<? extends T> values,
+            final Predicate<? super T> predicate
+    ) {
+        return all(threads, values, predicate.negate()).thenApply(result -> !result);
+    }
+
+    public CompletableFuture<String> join(final int threads, final List<?> values) {
+        return parallelApply(
+                threads,
+                values,
+                stream -> stream.map(Object::toString).collect(Collectors.joining())
+        ).thenApply(parts -> String.join("", parts));
+    }
+
+    public <T> CompletableFuture<List<T>> filter(
+            final int threads,
+            final List<? extends T> values,
+            final Predicate<? super T> predicate
+    ) {
+        return flatten(parallelApply(
+                threads,
+                values,
+                stream -> stream.filter(predicate).collect(Collectors.<T>toList())
+        ));
+    }
+
+    public <T, U> CompletableFuture<List<U>> map(
+            final int threads,
+            final List<? extends T> values,
+            final Function<? super T, ? extends U> function
+    ) {
+        return flatten(parallelApply(
+                threads,
+                values,
+                stream -> stream.map(function).collect(Collectors.<U>toList())
+        ));
+    }
+
+    private static <T> CompletableFuture<List<T>> flatten(final CompletableFuture<List<List<T>>> parts) {
+        return parts.thenApply(lists -> lists.stream().flatMap(Collection::stream).collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,37 @@
+package info.kgeorgiy.ja.lihanov.concurrent;
+
+import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+public interface AsyncParallelMapper extends ParallelMapper {
+
+    <T, R> CompletableFuture<List<R>> mapAsync(Function<? super T, ? extends R> f, List<? extends T> args);
+
+    @Override
+    default <T, R> List<R> map(
+            final Function<? super T, ? extends R> f,
+            final List<? extends T> args
+    ) throws InterruptedException {
+        return await(mapAsync(f, args));
+    }
+
+    static <T> T await(final CompletableFuture<T> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof InterruptedException) {
+                throw (InterruptedException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
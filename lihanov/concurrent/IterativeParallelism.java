@@ -3,55 +3,106 @@ package info.kgeorgiy.ja.lihanov.concurrent;
 import info.kgeorgiy.java.advanced.concurrent.ListIP;
 import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
 
+import java.io.IOException;
 import java.util.*;
-import java.util.function.Function;
-import java.util.function.Predicate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.*;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 public class IterativeParallelism implements ListIP {
 
+    // Result slots of neighbouring chunks are kept a cache line apart, so threads do not invalidate each other
+    private static final int SLOT_PADDING = 16;
+    private static final int JOIN_WINDOW = 1 << 16;
+    private static final int JOIN_BLOCK = 1 << 12;
+    private static final long MAX_JOIN_LENGTH = Integer.MAX_VALUE - 8;
+
     private final ParallelMapper parallelMapper;
+    private final Executor executor;
+    private final SplitStrategy strategy;
 
     public IterativeParallelism() {
-        this(null);
+        this(null, null, SplitStrategy.STATIC);
     }
 
     public IterativeParallelism(final ParallelMapper parallelMapper) {
+        this(parallelMapper, null, SplitStrategy.STATIC);
+    }
+
+    private IterativeParallelism(final ParallelMapper parallelMapper, final Executor executor, final SplitStrategy strategy) {
         this.parallelMapper = parallelMapper;
+        this.executor = executor;
+        this.strategy = strategy;
+    }
+
+    public static IterativeParallelism withExecutor(final Executor executor) {
+        return new IterativeParallelism(null, Objects.requireNonNull(executor), SplitStrategy.STATIC);
+    }
+
+    public IterativeParallelism withStrategy(final SplitStrategy strategy) {
+        return new IterativeParallelism(parallelMapper, executor, Objects.requireNonNull(strategy));
+    }
+
+    public static IterativeParallelism pooled() {
+        return withExecutor(SharedExecutor.INSTANCE);
     }
 
     private <T, V> List<V> parallelApply(
-            int threads,
+            final int threads,
             final List<T> values,
             final Function<Stream<T>, V> threadFunction
     ) throws InterruptedException {
-        if (threads <= 0) {
-            throw new IllegalArgumentException("Count of threads should be not greater than zero");
-        }
-        if (values.size() == 0) {
-            return List.of();
-        }
+        return parallelApply(threads, values.size(), (from, to) -> threadFunction.apply(values.subList(from, to).stream()));
+    }
 
-        threads = Math.min(threads, values.size());
-        final List<Stream<T>> tasks = new ArrayList<>();
-        final int fragmentSize = values.size() / threads;
-        int remains = values.size() % threads;
-        for (int i = 0, right = 0; i < threads; i++) {
-            final int left = right;
-            right = left + fragmentSize;
-            if (remains > 0) {
-                remains--;
-                right++;
+    private <V> List<V> parallelApply(
+            final int threads,
+            final int size,
+            final RangeFunction<V> rangeFunction
+    ) throws InterruptedException {
+        final int[] bounds = strategy.bounds(threads, size);
+        final int chunks = bounds.length - 1;
+        final Object[] slots = new Object[chunks * SLOT_PADDING];
+        final AtomicInteger next = new AtomicInteger();
+        final Function<Integer, Void> worker = ignored -> {
+            for (int chunk; (chunk = next.getAndIncrement()) < chunks; ) {
+                slots[chunk * SLOT_PADDING] = rangeFunction.apply(bounds[chunk], bounds[chunk + 1]);
             }
-            tasks.add(values.subList(left, right).stream());
+            return null;
+        };
+
+        final List<Integer> tasks = IntStream.range(0, Math.min(threads, chunks)).boxed().collect(Collectors.toList());
+        if (parallelMapper != null) {
+            parallelMapper.map(worker, tasks);
+        } else if (executor != null) {
+            execute(worker, tasks);
+        } else {
+            map(worker, tasks);
         }
+        return IntStream.range(0, chunks).mapToObj(chunk -> IterativeParallelism.<V>cast(slots[chunk * SLOT_PADDING]))
+                .collect(Collectors.toList());
+    }
 
-        return parallelMapper != null ? parallelMapper.map(threadFunction, tasks) : map(threadFunction, tasks);
+    @SuppressWarnings("unchecked")
+    private static <V> V cast(final Object value) {
+        return (V) value;
+    }
+
+    static <T> List<Stream<T>> split(final int threads, final List<T> values) {
+        final int[] bounds = SplitStrategy.STATIC.bounds(threads, values.size());
+        return IntStream.range(0, bounds.length - 1)
+                .mapToObj(i -> values.subList(bounds[i], bounds[i + 1]).stream())
+                .collect(Collectors.toList());
     }
 
-    private static <T, V> List<V> map(final Function<Stream<T>, V> threadFunction, final List<Stream<T>> tasks) throws InterruptedException {
+    private static <T, V> List<V> map(final Function<T, V> threadFunction, final List<T> tasks) throws InterruptedException {
         final List<V> result = new ArrayList<>(Collections.nCopies(tasks.size(), null));
 
         final RuntimeException runtimeException = new RuntimeException();
@@ -77,7 +128,18 @@ public class IterativeParallelism implements ListIP {
         return result;
     }
 
-    private static <T> T maxOfStream(final Stream<T> stream, final Comparator<? super T> comparator) {
+    private <T, V> List<V> execute(final Function<T, V> threadFunction, final List<T> tasks) throws InterruptedException {
+        final List<CompletableFuture<V>> futures = tasks.stream()
+                .map(task -> CompletableFuture.supplyAsync(() -> threadFunction.apply(task), executor))
+                .collect(Collectors.toList());
+        final List<V> result = new ArrayList<>(futures.size());
+        for (final CompletableFuture<V> future : futures) {
+            result.add(AsyncParallelMapper.await(future));
+        }
+        return result;
+    }
+
+    static <T> T maxOfStream(final Stream<T> stream, final Comparator<? super T> comparator) {
         return stream.max(comparator).orElseThrow();
     }
 
@@ -103,10 +165,25 @@ public class IterativeParallelism implements ListIP {
             final int threads,
             final List<? extends T> values,
             final Predicate<? super T> predicate) throws InterruptedException {
-        return parallelApply(threads, values, stream -> stream.allMatch(predicate))
+        final AtomicBoolean failed = new AtomicBoolean();
+        return parallelApply(threads, values, stream -> stream.allMatch(whileNotFailed(predicate, failed)))
                 .stream().allMatch(Boolean::booleanValue);
     }
 
+    // Once any fragment sees a mismatch the answer is decided, so the other fragments stop at their next element
+    static <T> Predicate<T> whileNotFailed(final Predicate<? super T> predicate, final AtomicBoolean failed) {
+        return value -> {
+            if (failed.get()) {
+                return false;
+            }
+            if (!predicate.test(value)) {
+                failed.set(true);
+                return false;
+            }
+            return true;
+        };
+    }
+
     @Override
     public <T> boolean any(final int threads, final List<? extends T> values, final Predicate<? super T> predicate) throws InterruptedException {
         return !all(threads, values, predicate.negate());
@@ -114,35 +191,248 @@ public class IterativeParallelism implements ListIP {
 
     @Override
     public String join(final int threads, final List<?> values) throws InterruptedException {
-        return String.join("", parallelApply(
-                threads,
-                values,
+        // Each fragment converts its elements block by block through one reused builder, so blocks are exact-size
+        // and stay compact Latin-1 strings, while converted elements are garbage at once instead of being kept.
+        // Blocks are then copied into a builder of the exact total length and released one by one,
+        // so at most about two copies of the output are alive, counting the final String
+        final List<List<String>> fragments = parallelApply(threads, values.size(), (from, to) -> {
+            final List<String> blocks = new ArrayList<>();
+            final StringBuilder block = new StringBuilder();
+            for (int left = from; left < to; left += JOIN_BLOCK) {
+                block.setLength(0);
+                for (final Object value : values.subList(left, Math.min(to, left + JOIN_BLOCK))) {
+                    // :NOTE: NPE
+                    block.append(value.toString());
+                }
+                blocks.add(block.toString());
+            }
+            return blocks;
+        });
+        long length = 0;
+        for (final List<String> blocks : fragments) {
+            for (final String block : blocks) {
+                length += block.length();
+            }
+        }
+        if (length > MAX_JOIN_LENGTH) {
+            throw new OutOfMemoryError("Joined string is too long, join into an Appendable instead");
+        }
+
+        final StringBuilder result = new StringBuilder((int) length);
+        for (final List<String> blocks : fragments) {
+            for (final ListIterator<String> it = blocks.listIterator(); it.hasNext(); ) {
+                result.append(it.next());
+                it.set(null);
+            }
+        }
+        return result.toString();
+    }
+
+    public void join(final int threads, final List<?> values, final Appendable sink) throws InterruptedException, IOException {
+        // Elements are converted window by window, so the whole output never has to be in memory at once
+        for (int from = 0; from < values.size(); from += JOIN_WINDOW) {
+            final List<?> window = values.subList(from, Math.min(values.size(), from + JOIN_WINDOW));
+            final String[] strings = new String[window.size()];
+            toStrings(threads, window, strings);
+            for (final String string : strings) {
+                sink.append(string);
+            }
+        }
+    }
+
+    private void toStrings(final int threads, final List<?> values, final String[] strings) throws InterruptedException {
+        parallelApply(threads, values.size(), (from, to) -> {
+            int i = from;
+            for (final Object value : values.subList(from, to)) {
                 // :NOTE: NPE
-                stream -> stream.map(Object::toString).collect(Collectors.joining())
-        ));
+                strings[i++] = value.toString();
+            }
+            return null;
+        });
     }
 
     @Override
     public <T> List<T> filter(final int threads, final List<? extends T> values, final Predicate<? super T> predicate) throws InterruptedException {
-        // :NOTE: Дубль
-        return parallelApply(
-                threads,
-                values,
-                stream -> stream.filter(predicate).collect(Collectors.toList())
-        ).stream()
-                .flatMap(Collection::stream)
-                .collect(Collectors.toList());
+        // The predicate is evaluated once into a mask, then every fragment copies its matches to its own offset
+        final boolean[] matches = new boolean[values.size()];
+        final List<Integer> counts = parallelApply(threads, values.size(), (from, to) -> {
+            int count = 0;
+            int i = from;
+            for (final T value : values.subList(from, to)) {
+                matches[i] = predicate.test(value);
+                count += matches[i++] ? 1 : 0;
+            }
+            return count;
+        });
+        final int[] bounds = strategy.bounds(threads, values.size());
+        final int[] offsets = new int[counts.size() + 1];
+        for (int i = 0; i < counts.size(); i++) {
+            offsets[i + 1] = offsets[i] + counts.get(i);
+        }
+
+        final Object[] result = new Object[offsets[counts.size()]];
+        parallelApply(threads, values.size(), (from, to) -> {
+            int position = offsets[Arrays.binarySearch(bounds, from)];
+            int i = from;
+            for (final T value : values.subList(from, to)) {
+                if (matches[i++]) {
+                    result[position++] = value;
+                }
+            }
+            return null;
+        });
+        return asList(result);
     }
 
     @Override
     public <T, U> List<U> map(final int threads, final List<? extends T> values, final Function<? super T, ? extends U> function) throws InterruptedException {
-        // :NOTE: Дубль
-        return parallelApply(
-                threads,
-                values,
-                stream -> stream.map(function).collect(Collectors.toList())
-        ).stream()
-                .flatMap(Collection::stream)
-                .collect(Collectors.toList());
+        final Object[] result = new Object[values.size()];
+        parallelApply(threads, values.size(), (from, to) -> {
+            int i = from;
+            for (final T value : values.subList(from, to)) {
+                result[i++] = function.apply(value);
+            }
+            return null;
+        });
+        return asList(result);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> asList(final Object[] values) {
+        return (List<T>) Arrays.asList(values);
+    }
+
+    public <T> T reduce(final int threads, final List<T> values, final Monoid<T> monoid) throws InterruptedException {
+        return mapReduce(threads, values, Function.identity(), monoid);
+    }
+
+    public <T, R> R mapReduce(
+            final int threads,
+            final List<T> values,
+            final Function<? super T, ? extends R> lift,
+            final Monoid<R> monoid
+    ) throws InterruptedException {
+        return treeReduce(
+                parallelApply(threads, values, stream -> stream.<R>map(lift).reduce(monoid.identity(), monoid::combine)),
+                monoid
+        );
+    }
+
+    private static <R> R treeReduce(List<R> level, final Monoid<R> monoid) {
+        if (level.isEmpty()) {
+            return monoid.identity();
+        }
+        while (level.size() > 1) {
+            final List<R> next = new ArrayList<>((level.size() + 1) / 2);
+            for (int i = 0; i < level.size(); i += 2) {
+                next.add(i + 1 < level.size() ? monoid.combine(level.get(i), level.get(i + 1)) : level.get(i));
+            }
+            level = next;
+        }
+        return level.get(0);
+    }
+
+    public int maximum(final int threads, final int[] values) throws InterruptedException {
+        return parallelApply(threads, values.length, (from, to) -> Arrays.stream(values, from, to).max().orElseThrow())
+                .stream().mapToInt(Integer::intValue).max().orElseThrow();
+    }
+
+    public int minimum(final int threads, final int[] values) throws InterruptedException {
+        return parallelApply(threads, values.length, (from, to) -> Arrays.stream(values, from, to).min().orElseThrow())
+                .stream().mapToInt(Integer::intValue).min().orElseThrow();
+    }
+
+    public long sum(final int threads, final int[] values) throws InterruptedException {
+        return parallelApply(threads, values.length, (from, to) -> Arrays.stream(values, from, to).asLongStream().sum())
+                .stream().mapToLong(Long::longValue).sum();
+    }
+
+    public int count(final int threads, final int[] values, final IntPredicate predicate) throws InterruptedException {
+        return parallelApply(threads, values.length, (from, to) -> Arrays.stream(values, from, to).filter(predicate).count())
+                .stream().mapToInt(Long::intValue).sum();
+    }
+
+    public int reduce(
+            final int threads,
+            final int[] values,
+            final int identity,
+            final IntBinaryOperator operator
+    ) throws InterruptedException {
+        return parallelApply(threads, values.length, (from, to) -> Arrays.stream(values, from, to).reduce(identity, operator))
+                .stream().mapToInt(Integer::intValue).reduce(identity, operator);
+    }
+
+    public long maximum(final int threads, final long[] values) throws InterruptedException {
+        return parallelApply(threads, values.length, (from, to) -> Arrays.stream(values, from, to).max().orElseThrow())
+                .stream().mapToLong(Long::longValue).max().orElseThrow();
+    }
+
+    public long minimum(final int threads, final long[] values) throws InterruptedException {
+        return parallelApply(threads, values.length, (from, to) -> Arrays.stream(values, from, to).min().orElseThrow())
+                .stream().mapToLong(Long::longValue).min().orElseThrow();
+    }
+
+    public long sum(final int threads, final long[] values) throws InterruptedException {
+        return parallelApply(threads, values.length, (from, to) -> Arrays.stream(values, from, to).sum())
+                .stream().mapToLong(Long::longValue).sum();
+    }
+
+    public int count(final int threads, final long[] values, final LongPredicate predicate) throws InterruptedException {
+        return parallelApply(threads, values.length, (from, to) -> Arrays.stream(values, from, to).filter(predicate).count())
+                .stream().mapToInt(Long::intValue).sum();
+    }
+
+    public long reduce(
+            final int threads,
+            final long[] values,
+            final long identity,
+            final LongBinaryOperator operator
+    ) throws InterruptedException {
+        return parallelApply(threads, values.length, (from, to) -> Arrays.stream(values, from, to).reduce(identity, operator))
+                .stream().mapToLong(Long::longValue).reduce(identity, operator);
+    }
+
+    public double maximum(final int threads, final double[] values) throws InterruptedException {
+        return parallelApply(threads, values.length, (from, to) -> Arrays.stream(values, from, to).max().orElseThrow())
+                .stream().mapToDouble(Double::doubleValue).max().orElseThrow();
+    }
+
+    public double minimum(final int threads, final double[] values) throws InterruptedException {
+        return parallelApply(threads, values.length, (from, to) -> Arrays.stream(values, from, to).min().orElseThrow())
+                .stream().mapToDouble(Double::doubleValue).min().orElseThrow();
+    }
+
+    public double sum(final int threads, final double[] values) throws InterruptedException {
+        return parallelApply(threads, values.length, (from, to) -> Arrays.stream(values, from, to).sum())
+                .stream().mapToDouble(Double::doubleValue).sum();
+    }
+
+    public int count(final int threads, final double[] values, final DoublePredicate predicate) throws InterruptedException {
+        return parallelApply(threads, values.length, (from, to) -> Arrays.stream(values, from, to).filter(predicate).count())
+                .stream().mapToInt(Long::intValue).sum();
+    }
+
+    public double reduce(
+            final int threads,
+            final double[] values,
+            final double identity,
+            final DoubleBinaryOperator operator
+    ) throws InterruptedException {
+        return parallelApply(threads, values.length, (from, to) -> Arrays.stream(values, from, to).reduce(identity, operator))
+                .stream().mapToDouble(Double::doubleValue).reduce(identity, operator);
+    }
+
+    @FunctionalInterface
+    private interface RangeFunction<V> {
+        V apply(int from, int to);
+    }
+
+    private static class SharedExecutor {
+        // Threads are reused between calls and die after a minute of idleness, so a burst of calls does not leak them
+        private static final ExecutorService INSTANCE = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 }
@@ -0,0 +1,117 @@
+package info.kgeorgiy.ja.lihanov.concurrent;
+
+import info.kgeorgiy.ja.lihanov.benchmark.Benchmark;
+import info.kgeorgiy.java.advanced.concurrent.ListIP;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class IterativeParallelismBenchmark {
+
+    private static final int[] DEFAULT_SIZES = {1_000, 100_000, 1_000_000};
+    private static final int EXPENSIVE_WORK = 200;
+
+    private interface Operation {
+        Object run(ListIP ip, int threads, List<Object> values, Cost cost) throws InterruptedException;
+    }
+
+    private enum Cost {
+        CHEAP, EXPENSIVE;
+
+        private int work(final Object value) {
+            int hash = value.hashCode();
+            if (this == EXPENSIVE) {
+                double acc = hash;
+                for (int i = 0; i < EXPENSIVE_WORK; i++) {
+                    acc = Math.sqrt(acc + i);
+                }
+                hash += (int) acc;
+            }
+            return hash;
+        }
+    }
+
+    private static final Map<String, Operation> OPERATIONS = new LinkedHashMap<>();
+
+    static {
+        OPERATIONS.put("maximum", (ip, threads, values, cost) -> ip.maximum(threads, values, Comparator.comparingInt(cost::work)));
+        OPERATIONS.put("all", (ip, threads, values, cost) -> ip.all(threads, values, value -> cost.work(value) != Integer.MIN_VALUE));
+        OPERATIONS.put("filter", (ip, threads, values, cost) -> ip.filter(threads, values, value -> (cost.work(value) & 1) == 0));
+        OPERATIONS.put("map", (ip, threads, values, cost) -> ip.map(threads, values, cost::work));
+        OPERATIONS.put("join", (ip, threads, values, cost) -> ip.join(threads, values));
+    }
+
+    private static final Map<String, Function<Integer, List<Object>>> TYPES = Map.of(
+            "Integer", size -> IntStream.range(0, size).map(i -> i * 31 % size).boxed().collect(Collectors.toList()),
+            "String", size -> IntStream.range(0, size).mapToObj(i -> "value-" + (i * 31 % size)).collect(Collectors.toList())
+    );
+
+    public static void main(final String[] args) throws InterruptedException, IOException {
+        if (args == null || args.length > 3) {
+            System.err.println("Usage: IterativeParallelismBenchmark [max threads [report.csv [size,size,...]]]");
+            return;
+        }
+        final int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        final Path report = Path.of(args.length > 1 ? args[1] : "iterative-parallelism.csv");
+        final int[] sizes = args.length > 2
+                ? Arrays.stream(args[2].split(",")).mapToInt(Integer::parseInt).toArray()
+                : DEFAULT_SIZES;
+        final List<Integer> threadCounts = IntStream.iterate(1, t -> t <= maxThreads, t -> t * 2)
+                .boxed().collect(Collectors.toList());
+
+        try (final ParallelMapperImpl mapper = new ParallelMapperImpl(maxThreads);
+             final WorkStealingParallelMapper workStealing = new WorkStealingParallelMapper(maxThreads);
+             final PrintWriter writer = new PrintWriter(Files.newBufferedWriter(report))) {
+            final Map<String, ListIP> backends = new LinkedHashMap<>();
+            backends.put("threads", new IterativeParallelism());
+            backends.put("pooled", IterativeParallelism.pooled());
+            backends.put("mapper", new IterativeParallelism(mapper));
+            backends.put("work-stealing", new IterativeParallelism(workStealing));
+
+            writer.println("operation,backend,type,cost,size,threads,us_per_call,speedup");
+            System.out.printf("%-8s %-13s %-8s %-9s %10s %7s %14s %8s%n",
+                    "op", "backend", "type", "cost", "size", "threads", "us/call", "speedup");
+            for (final int size : sizes) {
+                for (final Map.Entry<String, Function<Integer, List<Object>>> type : new TreeMap<>(TYPES).entrySet()) {
+                    final List<Object> values = type.getValue().apply(size);
+                    for (final Map.Entry<String, Operation> operation : OPERATIONS.entrySet()) {
+                        for (final Cost cost : Cost.values()) {
+                            for (final Map.Entry<String, ListIP> backend : backends.entrySet()) {
+                                double single = 0;
+                                for (final int threads : threadCounts) {
+                                    final double micros = measure(operation.getValue(), backend.getValue(), threads, values, cost);
+                                    single = threads == 1 ? micros : single;
+                                    final String row = String.format(Locale.ROOT, "%s,%s,%s,%s,%d,%d,%.1f,%.2f",
+                                            operation.getKey(), backend.getKey(), type.getKey(), cost, size, threads,
+                                            micros, single / micros);
+                                    writer.println(row);
+                                    System.out.printf(Locale.ROOT, "%-8s %-13s %-8s %-9s %10d %7d %14.1f %8.2f%n",
+                                            operation.getKey(), backend.getKey(), type.getKey(), cost, size, threads,
+                                            micros, single / micros);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        System.out.println("Scaling report written to " + report);
+    }
+
+    // Microseconds per call
+    private static double measure(
+            final Operation operation,
+            final ListIP ip,
+            final int threads,
+            final List<Object> values,
+            final Cost cost
+    ) throws InterruptedException {
+        return Benchmark.median(() -> operation.run(ip, threads, values, cost)) / 1000;
+    }
+}
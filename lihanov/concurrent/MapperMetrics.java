@@ -0,0 +1,236 @@
+package info.kgeorgiy.ja.lihanov.concurrent;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+public class MapperMetrics implements MapperMetricsMBean {
+
+    private final IntSupplier queueDepth;
+    private final long createdAt = System.nanoTime();
+    private final LongAdder submittedTasks = new LongAdder();
+    private final LongAdder completedTasks = new LongAdder();
+    private final AtomicLongArray workerBusyNanos;
+    private final Histogram taskWait = new Histogram();
+    private final Histogram mapLatency = new Histogram();
+    private ObjectName objectName;
+    private JMException registrationFailure;
+
+    MapperMetrics(final int workers, final IntSupplier queueDepth) {
+        this.workerBusyNanos = new AtomicLongArray(workers);
+        this.queueDepth = queueDepth;
+    }
+
+    // Called when the task is queued, so only queued tasks are submitted and the wait starts here
+    Runnable timed(final Runnable task) {
+        submittedTasks.increment();
+        final long enqueuedAt = System.nanoTime();
+        return () -> {
+            taskWait.record(System.nanoTime() - enqueuedAt);
+            task.run();
+        };
+    }
+
+    void recordBusy(final int worker, final long nanos) {
+        workerBusyNanos.addAndGet(worker, nanos);
+        completedTasks.increment();
+    }
+
+    void recordMap(final long nanos) {
+        mapLatency.record(nanos);
+    }
+
+    public Snapshot snapshot() {
+        final long uptime = Math.max(1, System.nanoTime() - createdAt);
+        final long[] busy = new long[workerBusyNanos.length()];
+        final double[] utilization = new double[busy.length];
+        for (int i = 0; i < busy.length; i++) {
+            busy[i] = workerBusyNanos.get(i);
+            utilization[i] = (double) busy[i] / uptime;
+        }
+        return new Snapshot(
+                queueDepth.getAsInt(),
+                submittedTasks.sum(),
+                completedTasks.sum(),
+                taskWait.percentiles(),
+                mapLatency.percentiles(),
+                busy,
+                utilization
+        );
+    }
+
+    synchronized void register(final String name) {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            objectName = new ObjectName("info.kgeorgiy.ja.lihanov.concurrent:type=ParallelMapper,name=" + ObjectName.quote(name));
+            server.registerMBean(this, objectName);
+        } catch (final JMException e) {
+            registrationFailure = e;
+            objectName = null;
+        }
+    }
+
+    synchronized void unregister() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (final JMException e) {
+            registrationFailure = e;
+        }
+        objectName = null;
+    }
+
+    // Metrics are collected without JMX as well, the last failure to register or unregister the bean is kept here
+    public synchronized Optional<JMException> getRegistrationFailure() {
+        return Optional.ofNullable(registrationFailure);
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queueDepth.getAsInt();
+    }
+
+    @Override
+    public long getSubmittedTasks() {
+        return submittedTasks.sum();
+    }
+
+    @Override
+    public long getCompletedTasks() {
+        return completedTasks.sum();
+    }
+
+    @Override
+    public long getMapCalls() {
+        return mapLatency.count();
+    }
+
+    @Override
+    public long getTaskWaitP50Nanos() {
+        return taskWait.percentile(0.5);
+    }
+
+    @Override
+    public long getTaskWaitP99Nanos() {
+        return taskWait.percentile(0.99);
+    }
+
+    @Override
+    public long getMapLatencyP50Nanos() {
+        return mapLatency.percentile(0.5);
+    }
+
+    @Override
+    public long getMapLatencyP99Nanos() {
+        return mapLatency.percentile(0.99);
+    }
+
+    @Override
+    public double[] getWorkerUtilization() {
+        return snapshot().workerUtilization;
+    }
+
+    public static class Snapshot {
+        public final int queueDepth;
+        public final long submittedTasks;
+        public final long completedTasks;
+        // Percentiles are stored as {count, p50, p90, p99, max}, in nanoseconds
+        public final long[] taskWait;
+        public final long[] mapLatency;
+        public final long[] workerBusyNanos;
+        public final double[] workerUtilization;
+
+        private Snapshot(
+                final int queueDepth,
+                final long submittedTasks,
+                final long completedTasks,
+                final long[] taskWait,
+                final long[] mapLatency,
+                final long[] workerBusyNanos,
+                final double[] workerUtilization
+        ) {
+            this.queueDepth = queueDepth;
+            this.submittedTasks = submittedTasks;
+            this.completedTasks = completedTasks;
+            this.taskWait = taskWait;
+            this.mapLatency = mapLatency;
+            this.workerBusyNanos = workerBusyNanos;
+            this.workerUtilization = workerUtilization;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "queue=%d submitted=%d completed=%d wait[count,p50,p90,p99,max]=%s map[count,p50,p90,p99,max]=%s utilization=%s",
+                    queueDepth, submittedTasks, completedTasks,
+                    Arrays.toString(taskWait), Arrays.toString(mapLatency), Arrays.toString(workerUtilization)
+            );
+        }
+    }
+
+    // Log-linear buckets in the spirit of HdrHistogram: 16 sub-buckets per power of two, so the error is below 7%
+    private static class Histogram {
+        private static final int SUB_BITS = 4;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+        private final AtomicLongArray counts = new AtomicLongArray(64 * SUB_BUCKETS);
+
+        private void record(final long value) {
+            counts.incrementAndGet(bucket(Math.max(0, value)));
+        }
+
+        private static int bucket(final long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            final int exponent = 63 - Long.numberOfLeadingZeros(value);
+            final int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+        }
+
+        private static long lowerBound(final int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            final int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+            return (1L << exponent) | ((long) (bucket % SUB_BUCKETS) << (exponent - SUB_BITS));
+        }
+
+        private long count() {
+            long count = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                count += counts.get(i);
+            }
+            return count;
+        }
+
+        private long percentile(final double quantile) {
+            return percentile(quantile, count());
+        }
+
+        private long percentile(final double quantile, final long count) {
+            final long target = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                seen += counts.get(i);
+                if (seen >= target) {
+                    return lowerBound(i);
+                }
+            }
+            return 0;
+        }
+
+        private long[] percentiles() {
+            final long count = count();
+            return new long[]{count, percentile(0.5, count), percentile(0.9, count), percentile(0.99, count), percentile(1, count)};
+        }
+    }
+}
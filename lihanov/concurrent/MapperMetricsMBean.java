@@ -0,0 +1,21 @@
+package info.kgeorgiy.ja.lihanov.concurrent;
+
+public interface MapperMetricsMBean {
+    int getQueueDepth();
+
+    long getSubmittedTasks();
+
+    long getCompletedTasks();
+
+    long getMapCalls();
+
+    long getTaskWaitP50Nanos();
+
+    long getTaskWaitP99Nanos();
+
+    long getMapLatencyP50Nanos();
+
+    long getMapLatencyP99Nanos();
+
+    double[] getWorkerUtilization();
+}
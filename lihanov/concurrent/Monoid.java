@@ -0,0 +1,23 @@
+package info.kgeorgiy.ja.lihanov.concurrent;
+
+import java.util.function.BinaryOperator;
+
+public interface Monoid<T> {
+    T identity();
+
+    T combine(T left, T right);
+
+    static <T> Monoid<T> of(final T identity, final BinaryOperator<T> operator) {
+        return new Monoid<>() {
+            @Override
+            public T identity() {
+                return identity;
+            }
+
+            @Override
+            public T combine(final T left, final T right) {
+                return operator.apply(left, right);
+            }
+        };
+    }
+}
@@ -1,52 +1,161 @@
 package info.kgeorgiy.ja.lihanov.concurrent;
 
-import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
-
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
-import java.util.stream.Stream;
 
-public class ParallelMapperImpl implements ParallelMapper {
+public class ParallelMapperImpl implements AsyncParallelMapper {
+
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final String CLOSED_MESSAGE = "Mapper was closed before all tasks were completed";
+    private static final String CLOSED_STATE_MESSAGE = "Mapper is closed";
 
-    private final SynchronizedRunnablesQueue runnablesQueue = new SynchronizedRunnablesQueue();
+    private final SynchronizedRunnablesQueue runnablesQueue;
     private final List<Thread> threadList;
-    private boolean closed;
+    private final boolean chunked;
+    private final MapperMetrics metrics;
+    private volatile boolean closed;
 
     public ParallelMapperImpl(final int threads) throws InterruptedException {
+        this(threads, false);
+    }
+
+    public ParallelMapperImpl(final int threads, final boolean chunked) throws InterruptedException {
+        this(threads, chunked, false);
+    }
+
+    public ParallelMapperImpl(final int threads, final boolean chunked, final boolean instrumented) throws InterruptedException {
+        this(threads, chunked, instrumented, Integer.MAX_VALUE, SubmissionPolicy.BLOCK);
+    }
+
+    // A bounded queue makes mapAsync synchronous at its edge: under BLOCK the calling thread waits
+    // until the tasks of the call fit, and under REJECT the call fails at once. The default queue is unbounded,
+    // so mapAsync never blocks there
+    public ParallelMapperImpl(
+            final int threads,
+            final boolean chunked,
+            final boolean instrumented,
+            final int capacity,
+            final SubmissionPolicy policy
+    ) throws InterruptedException {
         if (threads < 0) {
             throw new IllegalArgumentException("Count of threads should be not greater than zero");
         }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity of queue should be greater than zero");
+        }
 
-        final Runnable runnable = () -> {
+        this.runnablesQueue = new SynchronizedRunnablesQueue(capacity, Objects.requireNonNull(policy));
+        this.chunked = chunked;
+        this.metrics = instrumented ? new MapperMetrics(threads, runnablesQueue::size) : null;
+        threadList = IntStream.range(0, threads).mapToObj(i -> new Thread(() -> {
             try {
                 while (!Thread.interrupted()) {
-                    runnablesQueue.poll().run();
+                    final Runnable task = runnablesQueue.poll();
+                    if (metrics == null) {
+                        task.run();
+                    } else {
+                        final long start = System.nanoTime();
+                        task.run();
+                        metrics.recordBusy(i, System.nanoTime() - start);
+                    }
                 }
             } catch (final InterruptedException ignored) {
             } finally {
                 Thread.currentThread().interrupt();
             }
-        };
-        threadList = Stream.generate(() -> new Thread(runnable)).limit(threads).collect(Collectors.toList());
+        })).collect(Collectors.toList());
         threadList.forEach(Thread::start);
+        if (metrics != null) {
+            metrics.register("ParallelMapperImpl@" + Integer.toHexString(System.identityHashCode(this)));
+        }
+    }
+
+    public Optional<MapperMetrics> getMetrics() {
+        return Optional.ofNullable(metrics);
+    }
+
+    // Calls after close get a future failed with IllegalStateException, as in WorkStealingParallelMapper
+    private <R> void enqueue(final List<Runnable> tasks, final CompletableFuture<List<R>> future) {
+        if (closed) {
+            future.completeExceptionally(new IllegalStateException(CLOSED_STATE_MESSAGE));
+            return;
+        }
+        try {
+            runnablesQueue.addAll(tasks, metrics == null ? UnaryOperator.identity() : metrics::timed);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+        } catch (final IllegalStateException e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    private <R> CompletableFuture<List<R>> measured(final long start, final CompletableFuture<List<R>> future) {
+        if (metrics != null) {
+            future.whenComplete((result, e) -> metrics.recordMap(System.nanoTime() - start));
+        }
+        return future;
     }
 
     @Override
-    public <T, R> List<R> map(
+    public <T, R> CompletableFuture<List<R>> mapAsync(
             final Function<? super T, ? extends R> f,
             final List<? extends T> args
-    ) throws InterruptedException {
+    ) {
+        final long start = System.nanoTime();
+        if (chunked) {
+            return measured(start, chunkedMap(f, args));
+        }
         final SynchronizedResults<R> results = new SynchronizedResults<>(args.size());
-        IntStream.range(0, args.size()).forEach(i -> runnablesQueue.add(() -> {
+        final CompletableFuture<List<R>> future = measured(start, results.future);
+        enqueue(IntStream.range(0, args.size()).<Runnable>mapToObj(i -> () -> {
             if (closed) {
-                Thread.currentThread().interrupt();
+                results.future.completeExceptionally(new InterruptedException(CLOSED_MESSAGE));
                 return;
             }
-            results.set(i, f.apply(args.get(i)));
-        }));
-        return results.getData();
+            try {
+                results.set(i, f.apply(args.get(i)));
+            } catch (final RuntimeException e) {
+                results.future.completeExceptionally(e);
+            }
+        }).collect(Collectors.toList()), future);
+        return future;
+    }
+
+    private <T, R> CompletableFuture<List<R>> chunkedMap(
+            final Function<? super T, ? extends R> f,
+            final List<? extends T> args
+    ) {
+        final int chunks = Math.max(1, threadList.size()) * CHUNKS_PER_THREAD;
+        final int chunkSize = Math.max(1, (args.size() + chunks - 1) / chunks);
+        final ChunkedResults<R> results = new ChunkedResults<>(args.size(), (args.size() + chunkSize - 1) / chunkSize);
+        final List<Runnable> tasks = new ArrayList<>();
+        for (int left = 0; left < args.size(); left += chunkSize) {
+            final int from = left;
+            final int to = Math.min(args.size(), left + chunkSize);
+            tasks.add(() -> {
+                if (closed) {
+                    results.future.completeExceptionally(new InterruptedException(CLOSED_MESSAGE));
+                    return;
+                }
+                try {
+                    for (int i = from; i < to; i++) {
+                        results.data[i] = f.apply(args.get(i));
+                    }
+                    results.arrive();
+                } catch (final RuntimeException e) {
+                    results.future.completeExceptionally(e);
+                }
+            });
+        }
+        enqueue(tasks, results.future);
+        return results.future;
     }
 
     // :NOTE: Оставшиеся потоки
@@ -61,47 +170,139 @@ public class ParallelMapperImpl implements ParallelMapper {
             } catch (InterruptedException ignored) {
             }
         }
-        runnablesQueue.runnables.forEach(Runnable::run);
+        runnablesQueue.drain().forEach(Runnable::run);
+        if (metrics != null) {
+            metrics.unregister();
+        }
     }
 
     private static class SynchronizedResults<T> {
         private final List<T> data;
+        private final CompletableFuture<List<T>> future = new CompletableFuture<>();
         private int remains;
 
         private SynchronizedResults(final int size) {
             this.data = new ArrayList<>(Collections.nCopies(size, null));
             remains = size;
+            if (size == 0) {
+                future.complete(data);
+            }
+        }
+
+        public void set(final int index, final T value) {
+            // The future is completed outside of the monitor, so dependent stages never run under the lock
+            if (update(index, value)) {
+                future.complete(data);
+            }
         }
 
-        public synchronized void set(final int index, final T value) {
+        private synchronized boolean update(final int index, final T value) {
             data.set(index, value);
-            if (--remains == 0) {
-                notify();
+            return --remains == 0;
+        }
+    }
+
+    private static class ChunkedResults<T> {
+        private final Object[] data;
+        private final AtomicInteger remains;
+        private final CompletableFuture<List<T>> future = new CompletableFuture<>();
+
+        @SuppressWarnings("unchecked")
+        private ChunkedResults(final int size, final int chunks) {
+            this.data = new Object[size];
+            this.remains = new AtomicInteger(chunks);
+            if (chunks == 0) {
+                future.complete((List<T>) Arrays.asList(data));
             }
         }
 
-        public synchronized List<T> getData() throws InterruptedException {
-            while (remains > 0) {
-                wait();
+        @SuppressWarnings("unchecked")
+        public void arrive() {
+            if (remains.decrementAndGet() == 0) {
+                future.complete((List<T>) Arrays.asList(data));
             }
-            return data;
         }
     }
 
+    // What mapAsync does with tasks that don't fit into the queue
+    public enum SubmissionPolicy {
+        // The caller of mapAsync is blocked until workers free enough space, so back pressure reaches the producer
+        BLOCK,
+        // mapAsync throws RejectedExecutionException without waiting, none of the tasks of the call are queued
+        REJECT
+    }
+
+    // Every map call gets its own lane and workers take tasks from the lanes in turn,
+    // so a small call is not stuck behind the whole backlog of a big one
     private static class SynchronizedRunnablesQueue {
-        private final Queue<Runnable> runnables = new ArrayDeque<>();
+        private final Queue<Queue<Runnable>> lanes = new ArrayDeque<>();
+        private final int capacity;
+        private final SubmissionPolicy policy;
+        private int size;
+        // Nothing is polled after the mapper drains the queue, so later tasks are refused
+        private boolean drained;
 
-        public synchronized void add(final Runnable runnable) {
-            runnables.add(runnable);
-            notify();
+        private SynchronizedRunnablesQueue(final int capacity, final SubmissionPolicy policy) {
+            this.capacity = capacity;
+            this.policy = policy;
+        }
+
+        // Every task is passed through admit at the moment it gets into its lane,
+        // so refused tasks and the time a submitter is blocked are never seen by it
+        public synchronized void addAll(final List<Runnable> runnables, final UnaryOperator<Runnable> admit) throws InterruptedException {
+            if (drained) {
+                throw new IllegalStateException(CLOSED_STATE_MESSAGE);
+            }
+            if (policy == SubmissionPolicy.REJECT && runnables.size() > capacity - size) {
+                throw new RejectedExecutionException("Queue of mapper is full: " + size + " of " + capacity + " tasks");
+            }
+            final Queue<Runnable> lane = new ArrayDeque<>();
+            for (final Runnable runnable : runnables) {
+                while (size >= capacity && !drained) {
+                    wait();
+                }
+                // Tasks added before the drain were run by close
+                if (drained) {
+                    throw new IllegalStateException(CLOSED_STATE_MESSAGE);
+                }
+                if (lane.isEmpty()) {
+                    lanes.add(lane);
+                }
+                lane.add(admit.apply(runnable));
+                // Workers wait only on an empty queue and submitters only on a full one, so only these edges wake anyone
+                if (size++ == 0) {
+                    notifyAll();
+                }
+            }
         }
 
         public synchronized Runnable poll() throws InterruptedException {
-            while (runnables.isEmpty()) {
+            while (size == 0) {
                 wait();
             }
-            return runnables.poll();
+            final Queue<Runnable> lane = lanes.poll();
+            final Runnable runnable = lane.poll();
+            if (!lane.isEmpty()) {
+                lanes.add(lane);
+            }
+            if (size-- == capacity) {
+                notifyAll();
+            }
+            return runnable;
         }
 
+        public synchronized int size() {
+            return size;
+        }
+
+        public synchronized List<Runnable> drain() {
+            final List<Runnable> runnables = new ArrayList<>(size);
+            lanes.forEach(runnables::addAll);
+            lanes.clear();
+            size = 0;
+            drained = true;
+            notifyAll();
+            return runnables;
+        }
     }
 }
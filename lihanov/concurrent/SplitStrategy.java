@@ -0,0 +1,66 @@
+package info.kgeorgiy.ja.lihanov.concurrent;
+
+public enum SplitStrategy {
+    // One equal fragment per thread, the cheapest choice when every element costs the same
+    STATIC {
+        @Override
+        int[] split(final int threads, final int size) {
+            final int[] bounds = new int[threads + 1];
+            final int fragmentSize = size / threads;
+            int remains = size % threads;
+            for (int i = 0; i < threads; i++) {
+                bounds[i + 1] = bounds[i] + fragmentSize;
+                if (remains > 0) {
+                    remains--;
+                    bounds[i + 1]++;
+                }
+            }
+            return bounds;
+        }
+    },
+    // Chunks shrink with the remaining work, so the last chunks are small enough to even out stragglers
+    GUIDED {
+        @Override
+        int[] split(final int threads, final int size) {
+            int chunks = 0;
+            for (int left = 0; left < size; chunks++) {
+                left += guidedChunk(threads, size - left);
+            }
+            final int[] bounds = new int[chunks + 1];
+            for (int i = 0; i < chunks; i++) {
+                bounds[i + 1] = bounds[i] + guidedChunk(threads, size - bounds[i]);
+            }
+            return bounds;
+        }
+    },
+    // Many equal chunks taken one by one by whichever thread is free
+    DYNAMIC {
+        @Override
+        int[] split(final int threads, final int size) {
+            final int chunkSize = Math.max(1, size / (threads * CHUNKS_PER_THREAD));
+            final int[] bounds = new int[(size + chunkSize - 1) / chunkSize + 1];
+            for (int i = 1; i < bounds.length; i++) {
+                bounds[i] = Math.min(size, bounds[i - 1] + chunkSize);
+            }
+            return bounds;
+        }
+    };
+
+    private static final int CHUNKS_PER_THREAD = 8;
+
+    abstract int[] split(int threads, int size);
+
+    private static int guidedChunk(final int threads, final int remains) {
+        return Math.max(1, remains / (2 * threads));
+    }
+
+    int[] bounds(final int threads, final int size) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Count of threads should be not greater than zero");
+        }
+        if (size == 0) {
+            return new int[]{0};
+        }
+        return split(Math.min(threads, size), size);
+    }
+}
@@ -0,0 +1,266 @@
+package info.kgeorgiy.ja.lihanov.concurrent;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class StreamingParallelism {
+
+    private static final int BATCH_SIZE = 1024;
+    private static final int BATCHES_PER_THREAD = 2;
+
+    private final int batchSize;
+
+    public StreamingParallelism() {
+        this(BATCH_SIZE);
+    }
+
+    public StreamingParallelism(final int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Size of batch should be greater than zero");
+        }
+        this.batchSize = batchSize;
+    }
+
+    // The calling thread reads the source batch by batch and hands the batches over a bounded queue,
+    // so at most a few batches per worker are held in memory at once
+    private <T, V> List<V> parallelApply(
+            final int threads,
+            final Spliterator<? extends T> source,
+            final Function<List<T>, V> batchFunction,
+            final BooleanSupplier decided
+    ) throws InterruptedException {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Count of threads should be greater than zero");
+        }
+
+        final BlockingQueue<Batch<T, V>> queue = new ArrayBlockingQueue<>(threads * BATCHES_PER_THREAD);
+        final Batch<T, V> end = new Batch<>(List.of());
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final List<Thread> workers = IntStream.range(0, threads).mapToObj(i -> new Thread(() -> {
+            try {
+                // After a failure the rest of the batches are only drained, so the reader is never stuck
+                for (Batch<T, V> batch; (batch = queue.take()) != end; ) {
+                    try {
+                        if (error.get() == null) {
+                            batch.result = batchFunction.apply(batch.values);
+                        }
+                    } catch (final Throwable e) {
+                        if (!error.compareAndSet(null, e) && error.get() != e) {
+                            error.get().addSuppressed(e);
+                        }
+                    }
+                    batch.values = null;
+                }
+            } catch (final InterruptedException ignored) {
+            }
+        })).collect(Collectors.toList());
+        workers.forEach(Thread::start);
+
+        final List<Batch<T, V>> batches = new ArrayList<>();
+        boolean finished = false;
+        try {
+            while (error.get() == null && !decided.getAsBoolean()) {
+                final List<T> values = new ArrayList<>(batchSize);
+                while (values.size() < batchSize && source.tryAdvance(values::add)) {
+                    // Filled by tryAdvance
+                }
+                if (values.isEmpty()) {
+                    break;
+                }
+                final Batch<T, V> batch = new Batch<>(values);
+                batches.add(batch);
+                queue.put(batch);
+            }
+            for (int i = 0; i < threads; i++) {
+                queue.put(end);
+            }
+            for (final Thread worker : workers) {
+                worker.join();
+            }
+            finished = true;
+        } finally {
+            // The source or the caller failed: workers may be waiting for batches that will never come
+            if (!finished) {
+                workers.forEach(Thread::interrupt);
+                joinUninterruptibly(workers);
+            }
+        }
+
+        final Throwable failure = error.get();
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure != null) {
+            throw (Error) failure;
+        }
+        return batches.stream().map(batch -> batch.result).collect(Collectors.toList());
+    }
+
+    private static void joinUninterruptibly(final List<Thread> workers) {
+        boolean interrupted = false;
+        for (final Thread worker : workers) {
+            while (true) {
+                try {
+                    worker.join();
+                    break;
+                } catch (final InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public <T> T maximum(
+            final int threads,
+            final Spliterator<? extends T> source,
+            final Comparator<? super T> comparator
+    ) throws InterruptedException {
+        return IterativeParallelism.maxOfStream(
+                parallelApply(threads, source, batch -> IterativeParallelism.maxOfStream(batch.stream(), comparator), () -> false).stream(),
+                comparator
+        );
+    }
+
+    public <T> T maximum(
+            final int threads,
+            final Iterable<? extends T> source,
+            final Comparator<? super T> comparator
+    ) throws InterruptedException {
+        return maximum(threads, source.spliterator(), comparator);
+    }
+
+    public <T> T minimum(
+            final int threads,
+            final Spliterator<? extends T> source,
+            final Comparator<? super T> comparator
+    ) throws InterruptedException {
+        return maximum(threads, source, comparator.reversed());
+    }
+
+    public <T> T minimum(
+            final int threads,
+            final Iterable<? extends T> source,
+            final Comparator<? super T> comparator
+    ) throws InterruptedException {
+        return minimum(threads, source.spliterator(), comparator);
+    }
+
+    public <T> boolean all(
+            final int threads,
+            final Spliterator<? extends T> source,
+            final Predicate<? super T> predicate
+    ) throws InterruptedException {
+        final AtomicBoolean failed = new AtomicBoolean();
+        parallelApply(
+                threads,
+                source,
+                batch -> batch.stream().allMatch(IterativeParallelism.whileNotFailed(predicate, failed)),
+                failed::get
+        );
+        return !failed.get();
+    }
+
+    public <T> boolean all(
+            final int threads,
+            final Iterable<? extends T> source,
+            final Predicate<? super T> predicate
+    ) throws InterruptedException {
+        return all(threads, source.spliterator(), predicate);
+    }
+
+    public <T> boolean any(
+            final int threads,
+            final Spliterator<? extends T> source,
+            final Predicate<? super T> predicate
+    ) throws InterruptedException {
+        return !all(threads, source, predicate.negate());
+    }
+
+    public <T> boolean any(
+            final int threads,
+            final Iterable<? extends T> source,
+            final Predicate<? super T> predicate
+    ) throws InterruptedException {
+        return any(threads, source.spliterator(), predicate);
+    }
+
+    public String join(final int threads, final Spliterator<?> source) throws InterruptedException {
+        return String.join("", parallelApply(
+                threads,
+                source,
+                batch -> batch.stream().map(Object::toString).collect(Collectors.joining()),
+                () -> false
+        ));
+    }
+
+    public String join(final int threads, final Iterable<?> source) throws InterruptedException {
+        return join(threads, source.spliterator());
+    }
+
+    public <T> List<T> filter(
+            final int threads,
+            final Spliterator<? extends T> source,
+            final Predicate<? super T> predicate
+    ) throws InterruptedException {
+        return flatten(parallelApply(
+                threads,
+                source,
+                batch -> batch.stream().filter(predicate).collect(Collectors.<T>toList()),
+                () -> false
+        ));
+    }
+
+    public <T> List<T> filter(
+            final int threads,
+            final Iterable<? extends T> source,
+            final Predicate<? super T> predicate
+    ) throws InterruptedException {
+        return filter(threads, source.spliterator(), predicate);
+    }
+
+    public <T, U> List<U> map(
+            final int threads,
+            final Spliterator<? extends T> source,
+            final Function<? super T, ? extends U> function
+    ) throws InterruptedException {
+        return flatten(parallelApply(
+                threads,
+                source,
+                batch -> batch.stream().map(function).collect(Collectors.<U>toList()),
+                () -> false
+        ));
+    }
+
+    public <T, U> List<U> map(
+            final int threads,
+            final Iterable<? extends T> source,
+            final Function<? super T, ? extends U> function
+    ) throws InterruptedException {
+        return map(threads, source.spliterator(), function);
+    }
+
+    private static <T> List<T> flatten(final List<List<T>> parts) {
+        final List<T> result = new ArrayList<>(parts.stream().mapToInt(List::size).sum());
+        parts.forEach(result::addAll);
+        return result;
+    }
+
+    private static class Batch<T, V> {
+        private List<T> values;
+        private V result;
+
+        private Batch(final List<T> values) {
+            this.values = values;
+        }
+    }
+}
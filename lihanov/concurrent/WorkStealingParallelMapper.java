@@ -0,0 +1,169 @@
+package info.kgeorgiy.ja.lihanov.concurrent;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class WorkStealingParallelMapper implements AsyncParallelMapper {
+
+    private final List<Worker> workers;
+    private final AtomicInteger nextWorker = new AtomicInteger();
+    private volatile boolean closed;
+
+    public WorkStealingParallelMapper(final int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Count of threads should be greater than zero");
+        }
+
+        workers = IntStream.range(0, threads).mapToObj(Worker::new).collect(Collectors.toList());
+        workers.forEach(worker -> worker.thread.start());
+    }
+
+    @Override
+    public <T, R> CompletableFuture<List<R>> mapAsync(
+            final Function<? super T, ? extends R> f,
+            final List<? extends T> args
+    ) {
+        if (closed) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Mapper is closed"));
+        }
+
+        final Call<R> call = new Call<>(args.size());
+        // Spread arguments round-robin, so every worker starts with its own share and steals only when idle
+        final int start = nextWorker.getAndIncrement();
+        for (int i = 0; i < args.size(); i++) {
+            final int index = i;
+            workers.get(Math.floorMod(start + i, workers.size())).tasks.addLast(
+                    new Task(call, () -> call.set(index, f.apply(args.get(index))))
+            );
+        }
+        workers.forEach(Worker::wake);
+        if (closed) {
+            cancelPending();
+        }
+        return call.future;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        workers.forEach(worker -> worker.thread.interrupt());
+        for (final Worker worker : workers) {
+            try {
+                worker.thread.join();
+            } catch (final InterruptedException ignored) {
+            }
+        }
+        cancelPending();
+    }
+
+    private void cancelPending() {
+        for (final Worker worker : workers) {
+            Task task;
+            while ((task = worker.tasks.pollFirst()) != null) {
+                task.call.cancel();
+            }
+        }
+    }
+
+    private class Worker {
+        private final int index;
+        private final Deque<Task> tasks = new ConcurrentLinkedDeque<>();
+        private final Thread thread = new Thread(this::run);
+
+        private Worker(final int index) {
+            this.index = index;
+        }
+
+        private void run() {
+            while (!closed && !Thread.currentThread().isInterrupted()) {
+                final Task task = next();
+                if (task != null) {
+                    task.run();
+                } else {
+                    LockSupport.park(this);
+                }
+            }
+        }
+
+        private Task next() {
+            Task task = tasks.pollFirst();
+            for (int i = 1; task == null && i < workers.size(); i++) {
+                task = workers.get((index + i) % workers.size()).tasks.pollLast();
+            }
+            return task;
+        }
+
+        private void wake() {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private static class Task implements Runnable {
+        private final Call<?> call;
+        private final Runnable action;
+
+        private Task(final Call<?> call, final Runnable action) {
+            this.call = call;
+            this.action = action;
+        }
+
+        // Errors of the function fail its call as well and never reach the worker, which keeps serving other calls
+        @Override
+        public void run() {
+            try {
+                action.run();
+            } catch (final Throwable e) {
+                call.fail(e);
+            }
+            call.arrive();
+        }
+    }
+
+    private static class Call<R> {
+        private final Object[] data;
+        private final AtomicInteger remains;
+        private final AtomicReference<Throwable> error = new AtomicReference<>();
+        private final CompletableFuture<List<R>> future = new CompletableFuture<>();
+
+        private Call(final int size) {
+            data = new Object[size];
+            remains = new AtomicInteger(size);
+            if (size == 0) {
+                future.complete(List.of());
+            }
+        }
+
+        private void set(final int index, final R value) {
+            data[index] = value;
+        }
+
+        private void fail(final Throwable e) {
+            // The same exception may be thrown by several elements
+            if (!error.compareAndSet(null, e) && error.get() != e) {
+                error.get().addSuppressed(e);
+            }
+        }
+
+        private void cancel() {
+            future.completeExceptionally(new InterruptedException("Mapper was closed before all tasks were completed"));
+        }
+
+        @SuppressWarnings("unchecked")
+        private void arrive() {
+            if (remains.decrementAndGet() == 0) {
+                if (error.get() != null) {
+                    future.completeExceptionally(error.get());
+                } else {
+                    future.complete((List<R>) Arrays.asList(data));
+                }
+            }
+        }
+    }
+}
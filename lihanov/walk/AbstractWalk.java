@@ -7,24 +7,69 @@ import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public abstract class AbstractWalk implements Walker {
 
+    private static final int IN_FLIGHT_PER_THREAD = 4;
+
     // :NOTE: Доступ?
     Path inputPath;
     Path outputPath;
+    // 0 while -threads isn't given
+    int threads;
+    Hasher hasher = Hashers.PJW;
+    Path cachePath;
+    HashCache cache;
+    // RecursiveWalk only: trees are traversed by fork/join tasks and -threads sizes the traversal instead,
+    // defaulting to the count of processors. Lines of the input are then walked one by one
+    boolean forkJoin;
 
     @Override
     public void run() {
+        if (cachePath != null) {
+            try {
+                cache = HashCache.open(cachePath, hasher);
+            } catch (final IOException e) {
+                System.err.println("Can't open hash cache, files will be hashed from scratch: " + e.getMessage());
+            }
+        }
+        try {
+            walkAll();
+        } finally {
+            if (cache != null) {
+                try {
+                    cache.close();
+                } catch (final IOException e) {
+                    System.err.println("Can't compact hash cache: " + e.getMessage());
+                }
+                cache = null;
+            }
+        }
+    }
+
+    private void walkAll() {
         try (final BufferedReader reader = Files.newBufferedReader(inputPath)) {
             try (final BufferedWriter writer = Files.newBufferedWriter(outputPath)) {
+                // Every file is a task of the pool, the traversal of trees stays on this thread
+                final ExecutorService workers = threads <= 1 || forkJoin ? null : Executors.newFixedThreadPool(threads);
                 try {
+                    final OrderedWriter ordered = workers == null
+                            ? new OrderedWriter(writer)
+                            : new OrderedWriter(writer, workers, threads * IN_FLIGHT_PER_THREAD);
                     String stringPath;
                     while ((stringPath = reader.readLine()) != null) {
-                        walk(writer, stringPath);
+                        walk(ordered, stringPath);
                     }
+                    ordered.flush();
                 } catch (final IOException e) {
                     System.err.println("Can't read file from list of files: " + e.getMessage());
+                } finally {
+                    if (workers != null) {
+                        workers.shutdownNow();
+                    }
                 }
             } catch (final IOException e) {
                 System.err.println("Can't open output file " + e.getMessage());
@@ -34,17 +79,83 @@ public abstract class AbstractWalk implements Walker {
         }
     }
 
-    public abstract void walk(final BufferedWriter writer, final String stringPath) throws IOException;
+    // Whether -traversal can choose how trees are walked
+    boolean hasTraversals() {
+        return false;
+    }
+
+    public abstract void walk(final OrderedWriter writer, final String stringPath) throws IOException;
+
+    String getHashOfFile(final Path path) {
+        if (cache == null) {
+            return Hashers.getHashOfFile(hasher, path);
+        }
+        try {
+            return cache.getHashOfFile(path, Files.readAttributes(path, BasicFileAttributes.class));
+        } catch (final IOException e) {
+            return hasher.getZeroHash();
+        }
+    }
 
     public boolean isIncorrectArguments(final String[] args) {
-        if (args == null || args.length != 2 || args[0] == null || args[1] == null) {
-            System.err.println("Launch format: java Walk <input file> <output file>");
+        if (args == null || args.length < 2 || args[0] == null || args[1] == null) {
+            System.err.println("Launch format: java Walk <input file> <output file> [-threads <count>] [-hash <algorithm>] [-cache <file>] [-traversal sequential|fork-join]");
+            System.err.println("Hash algorithms: " + String.join(", ", Hashers.getNames()));
+            System.err.println("-traversal: RecursiveWalk only. With fork-join, lines within a tree are not in visit order");
             return true;
         } else {
             return false;
         }
     }
 
+    // Options follow the input and output files
+    public boolean cantParseOptions(final String[] args) {
+        for (int i = 2; i < args.length; i += 2) {
+            if (i + 1 >= args.length || args[i + 1] == null) {
+                System.err.println("Missing value of option " + args[i]);
+                return true;
+            }
+            if ("-threads".equals(args[i])) {
+                try {
+                    threads = Integer.parseInt(args[i + 1]);
+                } catch (final NumberFormatException e) {
+                    threads = 0;
+                }
+                if (threads <= 0) {
+                    System.err.println("Count of threads should be a positive integer: " + args[i + 1]);
+                    return true;
+                }
+            } else if ("-hash".equals(args[i])) {
+                hasher = Hashers.forName(args[i + 1]);
+                if (hasher == null) {
+                    System.err.println("Unknown hash algorithm " + args[i + 1] + ", expected one of: " + String.join(", ", Hashers.getNames()));
+                    return true;
+                }
+            } else if ("-cache".equals(args[i])) {
+                try {
+                    cachePath = Paths.get(args[i + 1]);
+                } catch (final InvalidPathException e) {
+                    System.err.println("Incorrect path of hash cache: " + args[i + 1]);
+                    return true;
+                }
+            } else if ("-traversal".equals(args[i])) {
+                if (!hasTraversals()) {
+                    System.err.println("Option -traversal is supported by RecursiveWalk only");
+                    return true;
+                }
+                if (!"sequential".equals(args[i + 1]) && !"fork-join".equals(args[i + 1])) {
+                    System.err.println("Unknown traversal " + args[i + 1] + ", expected sequential or fork-join");
+                    return true;
+                }
+                forkJoin = "fork-join".equals(args[i + 1]);
+            } else {
+                System.err.println("Unknown option: " + args[i]);
+                return true;
+            }
+        }
+        return false;
+    }
+
     public boolean cantInitPaths(final String inputPath, final String outputPath) {
         try {
             this.inputPath = Paths.get(inputPath);
@@ -0,0 +1,33 @@
+package info.kgeorgiy.ja.lihanov.walk;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32C;
+
+// java.util.zip.CRC32C is an intrinsic, computed by the CRC32 instructions of the CPU where they are available
+public class CRC32CHasher implements Hasher {
+    @Override
+    public String getName() {
+        return "crc32c";
+    }
+
+    @Override
+    public int getDigits() {
+        return 8;
+    }
+
+    @Override
+    public Digest newDigest() {
+        final CRC32C crc = new CRC32C();
+        return new Digest() {
+            @Override
+            public void update(final ByteBuffer buffer) {
+                crc.update(buffer);
+            }
+
+            @Override
+            public String getHash() {
+                return String.format("%08x", crc.getValue());
+            }
+        };
+    }
+}
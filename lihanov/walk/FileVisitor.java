@@ -1,6 +1,5 @@
 package info.kgeorgiy.ja.lihanov.walk;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Path;
@@ -9,21 +8,28 @@ import java.nio.file.attribute.BasicFileAttributes;
 
 public class FileVisitor extends SimpleFileVisitor<Path> {
 
-    private final BufferedWriter writer;
+    private final OrderedWriter writer;
+    private final Hasher hasher;
+    private final HashCache cache;
 
-    FileVisitor(final BufferedWriter bufferedWriter) {
+    FileVisitor(final OrderedWriter bufferedWriter, final Hasher hasher, final HashCache cache) {
         this.writer = bufferedWriter;
+        this.hasher = hasher;
+        this.cache = cache;
     }
 
     @Override
     public FileVisitResult visitFile(final Path path, final BasicFileAttributes attrs) throws IOException {
-        writer.write(String.format("%016x %s%n", PJWHasher.getHashOfFile(path), path));
+        writer.submit(() -> {
+            final String hash = cache != null ? cache.getHashOfFile(path, attrs) : Hashers.getHashOfFile(hasher, path);
+            return String.format("%s %s%n", hash, path);
+        });
         return FileVisitResult.CONTINUE;
     }
 
     @Override
     public FileVisitResult visitFileFailed(final Path path, final IOException exc) throws IOException {
-        writer.write(String.format("%016x %s%n", 0, path));
+        writer.write(String.format("%s %s%n", hasher.getZeroHash(), path));
         return FileVisitResult.CONTINUE;
     }
 }
\ No newline at end of file
@@ -0,0 +1,199 @@
+package info.kgeorgiy.ja.lihanov.walk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Walks a file tree as Files.walkFileTree does, without following links, but reads directories and attributes
+// of their entries in fork/join tasks. Discovered files flow through a bounded queue to a pool of hashing workers,
+// and their lines through another one to the writer, so lines of a tree come out in no particular order.
+// Both pools live as long as the walker, which serves all lines of a run
+class ForkJoinWalker implements Closeable {
+    private static final int QUEUE_PER_THREAD = 64;
+    private static final Discovered END = new Discovered(null, null);
+    private static final String END_OF_LINES = "";
+
+    private final int threads;
+    private final Hasher hasher;
+    private final HashCache cache;
+    private final ForkJoinPool traversal;
+    private final ExecutorService hashers;
+
+    ForkJoinWalker(final int threads, final Hasher hasher, final HashCache cache) {
+        this.threads = threads;
+        this.hasher = hasher;
+        this.cache = cache;
+        this.traversal = new ForkJoinPool(threads);
+        this.hashers = Executors.newFixedThreadPool(threads);
+    }
+
+    void walk(final Path root, final OrderedWriter writer) throws IOException {
+        final BlockingQueue<Discovered> files = new ArrayBlockingQueue<>(threads * QUEUE_PER_THREAD);
+        final BlockingQueue<String> lines = new ArrayBlockingQueue<>(threads * QUEUE_PER_THREAD);
+        final Set<Object> visited = ConcurrentHashMap.newKeySet();
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        try {
+            traversal.execute(() -> {
+                try {
+                    new VisitTask(root, files, visited, error).invoke();
+                } finally {
+                    for (int i = 0; i < threads; i++) {
+                        put(files, END);
+                    }
+                }
+            });
+            for (int i = 0; i < threads; i++) {
+                hashers.execute(() -> {
+                    try {
+                        // After a failure the rest of the files are only drained, so the traversal isn't stuck
+                        for (Discovered file; (file = files.take()) != END; ) {
+                            final String line = error.get() == null ? line(file, error) : null;
+                            if (line != null) {
+                                lines.put(line);
+                            }
+                        }
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        put(lines, END_OF_LINES);
+                    }
+                });
+            }
+            for (int finished = 0; finished < threads; ) {
+                final String line = lines.take();
+                if (line == END_OF_LINES) {
+                    finished++;
+                } else {
+                    writer.write(line);
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // Tasks of this tree may wait on its queues forever, so the walker can't be used anymore
+            close();
+            throw new IOException("Interrupted while walking " + root, e);
+        } catch (final IOException e) {
+            close();
+            throw e;
+        }
+        final Throwable failure = error.get();
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure != null) {
+            throw (Error) failure;
+        }
+    }
+
+    @Override
+    public void close() {
+        traversal.shutdownNow();
+        hashers.shutdownNow();
+    }
+
+    // null if hashing failed, the failure is recorded in error
+    private String line(final Discovered file, final AtomicReference<Throwable> error) {
+        try {
+            return String.format("%s %s%n", hash(file), file.path);
+        } catch (final RuntimeException | Error e) {
+            error.compareAndSet(null, e);
+            return null;
+        }
+    }
+
+    private String hash(final Discovered file) {
+        if (file.attributes == null) {
+            return hasher.getZeroHash();
+        }
+        return cache != null ? cache.getHashOfFile(file.path, file.attributes) : Hashers.getHashOfFile(hasher, file.path);
+    }
+
+    // Waiting for the hashing workers is the back pressure on the traversal
+    private static <T> void put(final BlockingQueue<T> queue, final T element) {
+        try {
+            queue.put(element);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class Discovered {
+        private final Path path;
+        // null if the file can't be visited, it is written with a zero hash as in visitFileFailed
+        private final BasicFileAttributes attributes;
+
+        private Discovered(final Path path, final BasicFileAttributes attributes) {
+            this.path = path;
+            this.attributes = attributes;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static class VisitTask extends RecursiveAction {
+        private final Path path;
+        private final BlockingQueue<Discovered> files;
+        private final Set<Object> visited;
+        private final AtomicReference<Throwable> error;
+
+        private VisitTask(
+                final Path path,
+                final BlockingQueue<Discovered> files,
+                final Set<Object> visited,
+                final AtomicReference<Throwable> error
+        ) {
+            this.path = path;
+            this.files = files;
+            this.visited = visited;
+            this.error = error;
+        }
+
+        @Override
+        protected void compute() {
+            if (error.get() != null || Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            final BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            } catch (final IOException e) {
+                put(files, new Discovered(path, null));
+                return;
+            }
+            if (!attributes.isDirectory()) {
+                put(files, new Discovered(path, attributes));
+                return;
+            }
+            // Links aren't followed, but a directory can still be reached twice through bind mounts
+            if (attributes.fileKey() != null && !visited.add(attributes.fileKey())) {
+                put(files, new Discovered(path, null));
+                return;
+            }
+
+            final List<VisitTask> children = new ArrayList<>();
+            try (final DirectoryStream<Path> entries = Files.newDirectoryStream(path)) {
+                for (final Path entry : entries) {
+                    children.add(new VisitTask(entry, files, visited, error));
+                }
+            } catch (final DirectoryIteratorException e) {
+                // walkFileTree fails the whole walk in this case, through postVisitDirectory
+                error.compareAndSet(null, e.getCause());
+                return;
+            } catch (final IOException e) {
+                put(files, new Discovered(path, null));
+                return;
+            }
+            invokeAll(children);
+        }
+    }
+}
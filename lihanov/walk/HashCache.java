@@ -0,0 +1,222 @@
+package info.kgeorgiy.ja.lihanov.walk;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+// Hashes of files from previous runs, keyed by absolute path. An entry is used only while the size,
+// modification time and file key of the file are the same as when it was hashed.
+// The cache is a snapshot file and a journal next to it. New hashes are appended to the journal and flushed
+// one by one, so a crashed run loses at most the record being written, which is detected by its checksum.
+// Opening and closing rewrite the snapshot through a temporary file and an atomic move, and empty the journal
+public class HashCache implements Closeable {
+    private static final int MAGIC = 0x57414c4b;
+    private static final int VERSION = 1;
+
+    private final Path snapshot;
+    private final Path journal;
+    private final Hasher hasher;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Set<String> seen = ConcurrentHashMap.newKeySet();
+    private DataOutputStream journalOut;
+
+    private HashCache(final Path snapshot, final Hasher hasher) {
+        this.snapshot = snapshot;
+        this.journal = snapshot.resolveSibling(snapshot.getFileName() + ".journal");
+        this.hasher = hasher;
+    }
+
+    // Entries of another algorithm are dropped
+    public static HashCache open(final Path file, final Hasher hasher) throws IOException {
+        final HashCache cache = new HashCache(file, hasher);
+        cache.load(cache.snapshot);
+        cache.load(cache.journal);
+        cache.compact(false);
+        cache.journalOut = cache.create(cache.journal);
+        return cache;
+    }
+
+    public String getHashOfFile(final Path path, final BasicFileAttributes attributes) {
+        // Walks pass attributes of a link itself, but the hash is of its target, so entries are kept by the target
+        if (attributes.isSymbolicLink()) {
+            final BasicFileAttributes target;
+            try {
+                target = Files.readAttributes(path, BasicFileAttributes.class);
+            } catch (final IOException e) {
+                return Hashers.getHashOfFile(hasher, path);
+            }
+            return getHashOfFile(path, target);
+        }
+        final String key = path.toAbsolutePath().toString();
+        seen.add(key);
+        final Entry cached = entries.get(key);
+        if (cached != null && cached.matches(attributes)) {
+            return cached.hash;
+        }
+        final String hash = Hashers.getHashOfFile(hasher, path);
+        // Failures aren't cached, the file may be readable next time
+        if (!hash.equals(hasher.getZeroHash())) {
+            final Entry entry = new Entry(key, attributes, hash);
+            entries.put(key, entry);
+            append(entry);
+        }
+        return hash;
+    }
+
+    private synchronized void append(final Entry entry) {
+        if (journalOut == null) {
+            return;
+        }
+        try {
+            write(journalOut, entry);
+            journalOut.flush();
+        } catch (final IOException e) {
+            System.err.println("Can't write to hash cache journal, caching is disabled: " + e.getMessage());
+            closeJournal();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closeJournal();
+        compact(true);
+    }
+
+    private void closeJournal() {
+        if (journalOut != null) {
+            try {
+                journalOut.close();
+            } catch (final IOException e) {
+                System.err.println("Can't close hash cache journal: " + e.getMessage());
+            }
+            journalOut = null;
+        }
+    }
+
+    // After a run, entries of files that weren't walked are kept only if the files are still unchanged
+    private void compact(final boolean dropStale) throws IOException {
+        if (dropStale) {
+            entries.values().removeIf(entry -> !seen.contains(entry.path) && !entry.isFresh());
+        }
+        final Path temporary = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        try (final DataOutputStream out = create(temporary)) {
+            for (final Entry entry : entries.values()) {
+                write(out, entry);
+            }
+        }
+        Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.deleteIfExists(journal);
+    }
+
+    private DataOutputStream create(final Path file) throws IOException {
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(hasher.getName());
+        return out;
+    }
+
+    private void load(final Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !hasher.getName().equals(in.readUTF())) {
+                return;
+            }
+            for (Entry entry; (entry = read(in)) != null; ) {
+                entries.put(entry.path, entry);
+            }
+        } catch (final EOFException e) {
+            // Torn header of a file that was being created
+        }
+    }
+
+    // Records are framed by length and checksum
+    private static void write(final DataOutputStream out, final Entry entry) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final DataOutputStream record = new DataOutputStream(bytes)) {
+            record.writeUTF(entry.path);
+            record.writeLong(entry.size);
+            record.writeLong(entry.modified);
+            record.writeUTF(entry.fileKey);
+            record.writeUTF(entry.hash);
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeInt(bytes.size());
+        out.writeInt((int) crc.getValue());
+        bytes.writeTo(out);
+    }
+
+    // null at the end of a file or at a torn record
+    private static Entry read(final DataInputStream in) throws IOException {
+        final byte[] bytes;
+        final int checksum;
+        try {
+            final int length = in.readInt();
+            checksum = in.readInt();
+            if (length < 0) {
+                return null;
+            }
+            bytes = in.readNBytes(length);
+            if (bytes.length < length) {
+                return null;
+            }
+        } catch (final EOFException e) {
+            return null;
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(bytes);
+        if ((int) crc.getValue() != checksum) {
+            return null;
+        }
+        final DataInputStream record = new DataInputStream(new ByteArrayInputStream(bytes));
+        return new Entry(record.readUTF(), record.readLong(), record.readLong(), record.readUTF(), record.readUTF());
+    }
+
+    private static class Entry {
+        private final String path;
+        private final long size;
+        private final long modified;
+        private final String fileKey;
+        private final String hash;
+
+        private Entry(final String path, final long size, final long modified, final String fileKey, final String hash) {
+            this.path = path;
+            this.size = size;
+            this.modified = modified;
+            this.fileKey = fileKey;
+            this.hash = hash;
+        }
+
+        private Entry(final String path, final BasicFileAttributes attributes, final String hash) {
+            this(path, attributes.size(), modified(attributes), fileKey(attributes), hash);
+        }
+
+        private static long modified(final BasicFileAttributes attributes) {
+            return attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+        }
+
+        private static String fileKey(final BasicFileAttributes attributes) {
+            return attributes.fileKey() == null ? "" : attributes.fileKey().toString();
+        }
+
+        private boolean matches(final BasicFileAttributes attributes) {
+            return size == attributes.size() && modified == modified(attributes) && fileKey.equals(fileKey(attributes));
+        }
+
+        private boolean isFresh() {
+            try {
+                return matches(Files.readAttributes(Path.of(path), BasicFileAttributes.class));
+            } catch (final IOException | InvalidPathException e) {
+                return false;
+            }
+        }
+    }
+}
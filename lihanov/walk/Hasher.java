@@ -0,0 +1,25 @@
+package info.kgeorgiy.ja.lihanov.walk;
+
+import java.nio.ByteBuffer;
+
+public interface Hasher {
+    // Name to select the algorithm from the command line
+    String getName();
+
+    // Count of hex digits in a printed hash
+    int getDigits();
+
+    // A digest hashes a single file and is used by a single thread
+    Digest newDigest();
+
+    default String getZeroHash() {
+        return "0".repeat(getDigits());
+    }
+
+    interface Digest {
+        // Consumes all remaining bytes of the buffer
+        void update(final ByteBuffer buffer);
+
+        String getHash();
+    }
+}
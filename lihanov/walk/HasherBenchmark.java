@@ -0,0 +1,48 @@
+package info.kgeorgiy.ja.lihanov.walk;
+
+import info.kgeorgiy.ja.lihanov.benchmark.Benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+public class HasherBenchmark {
+
+    private static final int DEFAULT_SIZE = 1 << 26;
+    private static final int CHUNK = 1 << 18;
+    public static void main(final String[] args) {
+        if (args == null || args.length > 2) {
+            System.err.println("Usage: HasherBenchmark [size in bytes [algorithm,algorithm,...]]");
+            return;
+        }
+        final int size = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SIZE;
+        final List<String> names = args.length > 1 ? List.of(args[1].split(",")) : new ArrayList<>(Hashers.getNames());
+
+        // Data is hashed from memory in chunks of the size Hashers read files with, so only the algorithm is measured
+        final byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        final ByteBuffer data = ByteBuffer.allocateDirect(size);
+        data.put(bytes).flip();
+
+        System.out.printf("%-10s %12s %10s%n", "algorithm", "size", "MB/s");
+        for (final String name : names) {
+            final Hasher hasher = Hashers.forName(name);
+            if (hasher == null) {
+                System.err.println("Unknown hash algorithm: " + name);
+                continue;
+            }
+            System.out.printf(Locale.ROOT, "%-10s %12d %10.1f%n", name, size, measure(hasher, data));
+        }
+    }
+
+    // Megabytes per second
+    private static double measure(final Hasher hasher, final ByteBuffer data) {
+        final double nanos = Benchmark.median(() -> {
+            final Hasher.Digest digest = hasher.newDigest();
+            for (int from = 0; from < data.limit(); from += CHUNK) {
+                digest.update(data.duplicate().position(from).limit(Math.min(data.limit(), from + CHUNK)));
+            }
+            return digest.getHash();
+        });
+        return data.limit() / (nanos / 1e9) / (1 << 20);
+    }
+}
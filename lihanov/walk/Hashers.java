@@ -0,0 +1,81 @@
+package info.kgeorgiy.ja.lihanov.walk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+public final class Hashers {
+    public static final Hasher PJW = new PJWHasher();
+
+    // Files from this size on are mapped by windows, smaller ones are read into a direct buffer
+    static final long MAP_THRESHOLD = 1 << 24;
+    private static final long MAP_WINDOW = 1 << 28;
+    private static final int BUFFER_SIZE = 1 << 18;
+
+    // A direct buffer per thread: the kernel copies straight into it, and it is reused between files
+    private static final ThreadLocal<ByteBuffer> BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+    private static final Map<String, Hasher> HASHERS = new LinkedHashMap<>();
+
+    static {
+        for (final Hasher hasher : new Hasher[]{PJW, new XxHash64Hasher(), new CRC32CHasher(), new SHA256Hasher()}) {
+            HASHERS.put(hasher.getName(), hasher);
+        }
+    }
+
+    private Hashers() {
+    }
+
+    // null if there is no such algorithm
+    public static Hasher forName(final String name) {
+        return HASHERS.get(name);
+    }
+
+    public static Set<String> getNames() {
+        return Collections.unmodifiableSet(HASHERS.keySet());
+    }
+
+    // Hash of an unreadable file is all zeros
+    public static String getHashOfFile(final Hasher hasher, final Path path) {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() >= MAP_THRESHOLD) {
+                try {
+                    return hashMapped(hasher, channel);
+                } catch (final InternalError e) {
+                    // The file was truncated under the mapping, what is left of it is read instead
+                    channel.position(0);
+                }
+            }
+            return hashRead(hasher, channel);
+        } catch (final IOException e) {
+            return hasher.getZeroHash();
+        }
+    }
+
+    static String hashRead(final Hasher hasher, final FileChannel channel) throws IOException {
+        final Hasher.Digest digest = hasher.newDigest();
+        final ByteBuffer buffer = BUFFER.get();
+        buffer.clear();
+        while (channel.read(buffer) >= 0) {
+            buffer.flip();
+            digest.update(buffer);
+            buffer.clear();
+        }
+        return digest.getHash();
+    }
+
+    static String hashMapped(final Hasher hasher, final FileChannel channel) throws IOException {
+        final Hasher.Digest digest = hasher.newDigest();
+        final long size = channel.size();
+        for (long position = 0; position < size; position += MAP_WINDOW) {
+            digest.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_WINDOW, size - position)));
+        }
+        return digest.getHash();
+    }
+}
@@ -0,0 +1,80 @@
+package info.kgeorgiy.ja.lihanov.walk;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+// Writes lines of files in the order they are given. Without workers files are hashed on the spot.
+// With them every file is hashed by a worker, the deque of pending lines is the reorder buffer,
+// and its bound limits the files in flight
+public class OrderedWriter {
+    private final BufferedWriter writer;
+    private final ExecutorService workers;
+    private final int capacity;
+    private final Deque<Future<String>> pending = new ArrayDeque<>();
+
+    OrderedWriter(final BufferedWriter writer, final ExecutorService workers, final int capacity) {
+        this.writer = writer;
+        this.workers = workers;
+        this.capacity = capacity;
+    }
+
+    OrderedWriter(final BufferedWriter writer) {
+        this(writer, null, 0);
+    }
+
+    // A line that is already known, such as one of a file that can't be visited
+    public void write(final String line) throws IOException {
+        if (pending.isEmpty()) {
+            writer.write(line);
+        } else {
+            add(CompletableFuture.completedFuture(line));
+        }
+    }
+
+    public void submit(final Supplier<String> line) throws IOException {
+        if (workers == null) {
+            writer.write(line.get());
+        } else {
+            add(workers.submit(line::get));
+        }
+    }
+
+    private void add(final Future<String> line) throws IOException {
+        if (pending.size() >= capacity) {
+            writer.write(result(pending.removeFirst()));
+        }
+        pending.addLast(line);
+    }
+
+    void flush() throws IOException {
+        while (!pending.isEmpty()) {
+            writer.write(result(pending.removeFirst()));
+        }
+    }
+
+    private static String result(final Future<String> future) throws IOException {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for files to be hashed", e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else {
+                throw (Error) cause;
+            }
+        }
+    }
+}
@@ -2,10 +2,11 @@ package info.kgeorgiy.ja.lihanov.walk;
 
 import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
-public class PJWHasher {
+public class PJWHasher implements Hasher {
     private static long PJWOperation(final byte byteRead, long hash) {
         hash = (hash << 8) + (byteRead & 0xFF);
         final long high = hash & 0xFF00000000000000L;
@@ -16,7 +17,39 @@ public class PJWHasher {
         return hash;
     }
 
-    public static long getHashOfFile(final Path path) {
+    @Override
+    public String getName() {
+        return "pjw";
+    }
+
+    @Override
+    public int getDigits() {
+        return 16;
+    }
+
+    @Override
+    public Digest newDigest() {
+        return new Digest() {
+            private long hash;
+
+            @Override
+            public void update(final ByteBuffer buffer) {
+                long hash = this.hash;
+                while (buffer.hasRemaining()) {
+                    hash = PJWOperation(buffer.get(), hash);
+                }
+                this.hash = hash;
+            }
+
+            @Override
+            public String getHash() {
+                return String.format("%016x", hash);
+            }
+        };
+    }
+
+    // The former stream path, kept as the baseline for PJWHasherBenchmark
+    static long hashStream(final Path path) throws IOException {
         long hash = 0;
         try (final BufferedInputStream bufferedInputStream = new BufferedInputStream(Files.newInputStream(path))) {
             int countOfByteRead;
@@ -26,8 +59,6 @@ public class PJWHasher {
                     hash = PJWOperation(bytes[i], hash);
                 }
             }
-        } catch (final IOException e) {
-            hash = 0;
         }
         return hash;
     }
@@ -0,0 +1,93 @@
+package info.kgeorgiy.ja.lihanov.walk;
+
+import info.kgeorgiy.ja.lihanov.benchmark.Benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+public class PJWHasherBenchmark {
+
+    private static final long[] DEFAULT_SIZES = {1L << 10, 1L << 20, 1L << 24, 1L << 28};
+    private static final long TOTAL_BYTES = 1L << 30;
+    private static final int MIN_RUNS = 3;
+
+    private interface Engine {
+        Object hash(Path path) throws IOException;
+    }
+
+    private static final Map<String, Engine> ENGINES = new LinkedHashMap<>();
+
+    static {
+        ENGINES.put("stream", PJWHasher::hashStream);
+        ENGINES.put("channel", path -> {
+            try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                return Hashers.hashRead(Hashers.PJW, channel);
+            }
+        });
+        ENGINES.put("mapped", path -> {
+            try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                return Hashers.hashMapped(Hashers.PJW, channel);
+            }
+        });
+    }
+
+    public static void main(final String[] args) throws IOException {
+        if (args == null || args.length > 2) {
+            System.err.println("Usage: PJWHasherBenchmark [size,size,... [directory]]");
+            return;
+        }
+        // Sizes are in bytes, files of 10 GB need as much free disk space
+        final long[] sizes = args.length > 0
+                ? Arrays.stream(args[0].split(",")).mapToLong(Long::parseLong).toArray()
+                : DEFAULT_SIZES;
+        final Path directory = args.length > 1 ? Path.of(args[1]) : Path.of(System.getProperty("java.io.tmpdir"));
+
+        System.out.printf("%-8s %14s %8s %10s%n", "engine", "size", "runs", "MB/s");
+        for (final long size : sizes) {
+            final Path file = Files.createTempFile(directory, "pjw-benchmark", ".bin");
+            try {
+                fill(file, size);
+                final int runs = (int) Math.max(MIN_RUNS, TOTAL_BYTES / Math.max(1, size));
+                for (final Map.Entry<String, Engine> engine : ENGINES.entrySet()) {
+                    // Mappings are released only by the GC, so thousands of runs on small files would exhaust them.
+                    // Hashers do not map such files anyway
+                    if ("mapped".equals(engine.getKey()) && size < Hashers.MAP_THRESHOLD) {
+                        continue;
+                    }
+                    final double throughput = measure(engine.getValue(), file, size, runs);
+                    System.out.printf(Locale.ROOT, "%-8s %14d %8d %10.1f%n", engine.getKey(), size, runs, throughput);
+                }
+            } finally {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static void fill(final Path file, final long size) throws IOException {
+        final Random random = new Random(size);
+        final byte[] block = new byte[1 << 20];
+        try (final OutputStream out = Files.newOutputStream(file)) {
+            for (long written = 0; written < size; written += block.length) {
+                random.nextBytes(block);
+                out.write(block, 0, (int) Math.min(block.length, size - written));
+            }
+        }
+    }
+
+    // The file is hashed once to warm up, then as many times as it takes to read about a gigabyte.
+    // Repeated runs are served by the page cache, so this measures the hashing path rather than the disk
+    private static double measure(final Engine engine, final Path file, final long size, final int runs) throws IOException {
+        Benchmark.consume(engine.hash(file));
+        final long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            Benchmark.consume(engine.hash(file));
+        }
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        return size * runs / seconds / (1 << 20);
+    }
+}
@@ -1,29 +1,58 @@
 package info.kgeorgiy.ja.lihanov.walk;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.file.*;
 
 public class RecursiveWalk extends AbstractWalk{
 
+    private ForkJoinWalker forkJoinWalker;
+
     public static void main(final String[] args) {
         final Walker walker = new RecursiveWalk();
-        if (walker.isIncorrectArguments(args) || walker.cantInitPaths(args[0], args[1])) {
+        if (walker.isIncorrectArguments(args) || walker.cantInitPaths(args[0], args[1]) || walker.cantParseOptions(args)) {
             return;
         }
         walker.run();
     }
 
+    // Pools of the fork/join traversal are created by the first line and shared by the rest of a run
     @Override
-    public void walk(final BufferedWriter writer, final String stringPath) throws IOException {
+    public void run() {
+        try {
+            super.run();
+        } finally {
+            if (forkJoinWalker != null) {
+                forkJoinWalker.close();
+                forkJoinWalker = null;
+            }
+        }
+    }
+
+    @Override
+    boolean hasTraversals() {
+        return true;
+    }
+
+    @Override
+    public void walk(final OrderedWriter writer, final String stringPath) throws IOException {
         try {
-            // :NOTE: Новый на строку
-            final FileVisitor fileVisitor = new FileVisitor(writer);
             final Path pathOfFile = Paths.get(stringPath);
+            if (forkJoin) {
+                // Lines of a tree are written in no particular order
+                if (forkJoinWalker == null) {
+                    forkJoinWalker = new ForkJoinWalker(
+                            threads > 0 ? threads : Runtime.getRuntime().availableProcessors(), hasher, cache
+                    );
+                }
+                forkJoinWalker.walk(pathOfFile, writer);
+                return;
+            }
+            // :NOTE: Новый на строку
+            final FileVisitor fileVisitor = new FileVisitor(writer, hasher, cache);
             Files.walkFileTree(pathOfFile, fileVisitor);
         } catch (final InvalidPathException e) {
             System.err.println("Incorrect path of file from list of files: " + stringPath);
-            writer.write(String.format("%016x %s%n", 0, stringPath));
+            writer.write(String.format("%s %s%n", hasher.getZeroHash(), stringPath));
         }
     }
 }
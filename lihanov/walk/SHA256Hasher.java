@@ -0,0 +1,43 @@
+package info.kgeorgiy.ja.lihanov.walk;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+public class SHA256Hasher implements Hasher {
+    @Override
+    public String getName() {
+        return "sha-256";
+    }
+
+    @Override
+    public int getDigits() {
+        return 64;
+    }
+
+    @Override
+    public Digest newDigest() {
+        final MessageDigest sha;
+        try {
+            sha = MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new AssertionError(e);
+        }
+        return new Digest() {
+            @Override
+            public void update(final ByteBuffer buffer) {
+                sha.update(buffer);
+            }
+
+            @Override
+            public String getHash() {
+                final StringBuilder hash = new StringBuilder(getDigits());
+                for (final byte b : sha.digest()) {
+                    hash.append(String.format("%02x", b));
+                }
+                return hash.toString();
+            }
+        };
+    }
+}
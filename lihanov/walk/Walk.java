@@ -2,6 +2,7 @@ package info.kgeorgiy.ja.lihanov.walk;
 
 import java.io.*;
 import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 
 public class Walk extends AbstractWalk {
@@ -11,14 +12,15 @@ public class Walk extends AbstractWalk {
     }
 
     @Override
-    public void walk(final BufferedWriter writer, final String stringPath) throws IOException {
-        long hash;
+    public void walk(final OrderedWriter writer, final String stringPath) throws IOException {
+        final Path path;
         try {
-            hash = PJWHasher.getHashOfFile(Paths.get(stringPath));
+            path = Paths.get(stringPath);
         } catch (final InvalidPathException e) {
             System.err.println("Incorrect path of file from list of files: " + stringPath);
-            hash = 0;
+            writer.write(String.format("%s %s%n", hasher.getZeroHash(), stringPath));
+            return;
         }
-        writer.write(String.format("%016x %s%n", hash, stringPath));
+        writer.submit(() -> String.format("%s %s%n", getHashOfFile(path), stringPath));
     }
 }
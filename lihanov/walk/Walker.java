@@ -7,8 +7,10 @@ public interface Walker {
 
     boolean cantInitPaths(final String inputPath, final String outputPath);
 
+    boolean cantParseOptions(final String[] args);
+
     default void run(String[] args) {
-        if (isIncorrectArguments(args) || cantInitPaths(args[0], args[1])) {
+        if (isIncorrectArguments(args) || cantInitPaths(args[0], args[1]) || cantParseOptions(args)) {
             return;
         }
         run();
@@ -0,0 +1,112 @@
+package info.kgeorgiy.ja.lihanov.walk;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// XXH64 with seed 0: four independent lanes over 32-byte stripes, eight bytes per multiplication
+public class XxHash64Hasher implements Hasher {
+    private static final long PRIME_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME_3 = 0x165667B19E3779F9L;
+    private static final long PRIME_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME_5 = 0x27D4EB2F165667C5L;
+    private static final int STRIPE = 32;
+
+    @Override
+    public String getName() {
+        return "xxhash64";
+    }
+
+    @Override
+    public int getDigits() {
+        return 16;
+    }
+
+    @Override
+    public Digest newDigest() {
+        return new XxHash64Digest();
+    }
+
+    private static long round(final long acc, final long input) {
+        return Long.rotateLeft(acc + input * PRIME_2, 31) * PRIME_1;
+    }
+
+    private static long merge(final long hash, final long acc) {
+        return (hash ^ round(0, acc)) * PRIME_1 + PRIME_4;
+    }
+
+    private static class XxHash64Digest implements Digest {
+        private long v1 = PRIME_1 + PRIME_2;
+        private long v2 = PRIME_2;
+        private long v3 = 0;
+        private long v4 = -PRIME_1;
+        private long total;
+        // Bytes of an unfinished stripe, carried over to the next update
+        private final ByteBuffer pending = ByteBuffer.allocate(STRIPE).order(ByteOrder.LITTLE_ENDIAN);
+
+        @Override
+        public void update(final ByteBuffer buffer) {
+            final ByteBuffer input = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+            total += input.remaining();
+            if (pending.position() > 0) {
+                final int count = Math.min(pending.remaining(), input.remaining());
+                pending.put(input.slice().limit(count));
+                input.position(count);
+                if (pending.hasRemaining()) {
+                    buffer.position(buffer.limit());
+                    return;
+                }
+                stripe(pending, 0);
+                pending.clear();
+            }
+            int position = input.position();
+            for (final int limit = input.limit() - STRIPE; position <= limit; position += STRIPE) {
+                stripe(input, position);
+            }
+            pending.put(input.position(position));
+            buffer.position(buffer.limit());
+        }
+
+        private void stripe(final ByteBuffer input, final int position) {
+            v1 = round(v1, input.getLong(position));
+            v2 = round(v2, input.getLong(position + 8));
+            v3 = round(v3, input.getLong(position + 16));
+            v4 = round(v4, input.getLong(position + 24));
+        }
+
+        @Override
+        public String getHash() {
+            long hash;
+            if (total >= STRIPE) {
+                hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+                hash = merge(hash, v1);
+                hash = merge(hash, v2);
+                hash = merge(hash, v3);
+                hash = merge(hash, v4);
+            } else {
+                hash = PRIME_5;
+            }
+            hash += total;
+
+            final int length = pending.position();
+            int position = 0;
+            for (; position + 8 <= length; position += 8) {
+                hash = Long.rotateLeft(hash ^ round(0, pending.getLong(position)), 27) * PRIME_1 + PRIME_4;
+            }
+            if (position + 4 <= length) {
+                hash = Long.rotateLeft(hash ^ (pending.getInt(position) & 0xFFFFFFFFL) * PRIME_1, 23) * PRIME_2 + PRIME_3;
+                position += 4;
+            }
+            for (; position < length; position++) {
+                hash = Long.rotateLeft(hash ^ (pending.get(position) & 0xFFL) * PRIME_5, 11) * PRIME_1;
+            }
+
+            hash ^= hash >>> 33;
+            hash *= PRIME_2;
+            hash ^= hash >>> 29;
+            hash *= PRIME_3;
+            hash ^= hash >>> 32;
+            return String.format("%016x", hash);
+        }
+    }
+}